@@ -0,0 +1,58 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package benchmarks;
+
+import iloveyouboss.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchScoringBenchmark {
+    @Param({"100000"})
+    public int poolSize;
+
+    @Param({"8", "64"})
+    public int queryCount;
+
+    @Param({"4", "16"})
+    public int criteriaCount;
+
+    private ProfilePool pool;
+    private List<Criteria> queries;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ProfileData data = new ProfileData(42, 64, 5);
+        pool = data.pool(poolSize, 0.9);
+        queries = new ArrayList<>();
+        for (int i = 0; i < queryCount; i++)
+            queries.add(data.criteria(criteriaCount, ProfileData.WeightMix.UNIFORM));
+    }
+
+    @Benchmark
+    public List<List<Profile>> topKEach() {
+        List<List<Profile>> results = new ArrayList<>();
+        for (Criteria criteria : queries)
+            results.add(pool.topK(criteria, 50));
+        return results;
+    }
+
+    @Benchmark
+    public List<List<Profile>> topKBatched() {
+        return new BatchScorer(queries).topK(pool, 50);
+    }
+}
@@ -0,0 +1,97 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package benchmarks;
+
+import iloveyouboss.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MatchingBenchmark {
+    @Param({"10000", "1000000"})
+    public int poolSize;
+
+    @Param({"4", "16"})
+    public int criteriaCount;
+
+    @Param({"UNIFORM", "MUST_HEAVY", "PREFERENCES"})
+    public ProfileData.WeightMix weightMix;
+
+    @Param({"2", "5", "10"})
+    public int choices;
+
+    @Param({"0.9"})
+    public double answerRate;
+
+    private ProfilePool pool;
+    private ColumnarProfilePool columnar;
+    private AnswerIndex index;
+    private Criteria criteria;
+    private Profile profile;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ProfileData data = new ProfileData(42, 64, choices);
+        pool = data.pool(poolSize, answerRate);
+        columnar = pool.columnar();
+        index = columnar.index();
+        criteria = data.criteria(criteriaCount, weightMix);
+        profile = data.profile("single", answerRate);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public boolean profileMatches() {
+        return profile.matches(criteria);
+    }
+
+    @Benchmark
+    public void poolScore() {
+        pool.score(criteria);
+    }
+
+    @Benchmark
+    public List<Profile> poolScoreAndRank() {
+        pool.score(criteria);
+        return pool.ranked();
+    }
+
+    @Benchmark
+    public MatchResults poolParallelScore() {
+        return pool.parallelScore(criteria);
+    }
+
+    @Benchmark
+    public List<Profile> poolTopK() {
+        return pool.topK(criteria, 50);
+    }
+
+    @Benchmark
+    public List<Profile> poolParallelTopK() {
+        return pool.parallelTopK(criteria, 50);
+    }
+
+    @Benchmark
+    public MatchResults columnarScore() {
+        return columnar.score(criteria);
+    }
+
+    @Benchmark
+    public List<Profile> indexTopK() {
+        return index.topK(criteria, 50);
+    }
+}
@@ -0,0 +1,106 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package benchmarks;
+
+import iloveyouboss.*;
+
+import java.util.*;
+
+public class ProfileData {
+    public enum WeightMix {
+        // every weight equally likely, including MustMatch and DontCare
+        UNIFORM(Weight.values()),
+        // mostly MustMatch, the selective case
+        MUST_HEAVY(Weight.MustMatch, Weight.MustMatch, Weight.MustMatch, Weight.Important),
+        // no MustMatch at all, every profile is scored in full
+        PREFERENCES(Weight.VeryImportant, Weight.Important, Weight.WouldPrefer);
+
+        private final Weight[] weights;
+
+        WeightMix(Weight... weights) {
+            this.weights = weights;
+        }
+
+        Weight pick(Random random) {
+            return weights[random.nextInt(weights.length)];
+        }
+    }
+
+    private final Random random;
+    private final Question[] questions;
+
+    public ProfileData(long seed, int questionCount, int choices) {
+        random = new Random(seed);
+        questions = new Question[questionCount];
+        for (int id = 0; id < questionCount; id++)
+            questions[id] = id % 2 == 0
+                    ? new BooleanQuestion(id, "question " + id)
+                    : new PercentileQuestion(id, "question " + id, choices(choices));
+    }
+
+    private static String[] choices(int count) {
+        String[] choices = new String[count];
+        for (int i = 0; i < count; i++)
+            choices[i] = "choice " + i;
+        return choices;
+    }
+
+    public Question[] questions() {
+        return questions;
+    }
+
+    // each profile answers a question with probability answerRate
+    public Profile profile(String name, double answerRate) {
+        Profile profile = new Profile(name);
+        for (Question question : questions)
+            if (random.nextDouble() < answerRate)
+                profile.add(randomAnswer(question));
+        return profile;
+    }
+
+    public ProfilePool pool(int size, double answerRate) {
+        ProfilePool pool = new ProfilePool();
+        for (int i = 0; i < size; i++)
+            pool.add(profile("profile " + i, answerRate));
+        return pool;
+    }
+
+    public Criteria criteria(int count, WeightMix mix) {
+        Criteria criteria = new Criteria();
+        for (int i = 0; i < count; i++) {
+            Question question = questions[random.nextInt(questions.length)];
+            criteria.add(new Criterion(randomAnswer(question), mix.pick(random)));
+        }
+        return criteria;
+    }
+
+    private Answer randomAnswer(Question question) {
+        return new Answer(question, random.nextInt(question.getAnswerChoiceCount()));
+    }
+
+    public int[] scores(int count, int bound) {
+        int[] scores = new int[count];
+        for (int i = 0; i < count; i++)
+            scores[i] = random.nextInt(bound);
+        return scores;
+    }
+
+    public int[] shuffledKeys(int count) {
+        int[] keys = new int[count];
+        for (int i = 0; i < count; i++)
+            keys[i] = i * 7;
+        for (int i = count - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int key = keys[i];
+            keys[i] = keys[j];
+            keys[j] = key;
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,55 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package benchmarks;
+
+import iloveyouboss.*;
+
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScoreCollectionBenchmark {
+    @Param({"1000", "1000000"})
+    public int size;
+
+    private Scoreable[] scores;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int[] values = new ProfileData(42, 1, 2).scores(size, 10000);
+        scores = new Scoreable[values.length];
+        for (int i = 0; i < values.length; i++) {
+            int score = values[i];
+            scores[i] = () -> score;
+        }
+    }
+
+    // the collection summarizes as it goes, so adding is where the work is
+    @Benchmark
+    public double arithmeticMean() {
+        ScoreCollection collection = new ScoreCollection();
+        for (Scoreable score : scores)
+            collection.add(score);
+        return collection.arithmeticMean();
+    }
+
+    @Benchmark
+    public ScoreStatistics statistics() {
+        ScoreCollection collection = new ScoreCollection();
+        for (Scoreable score : scores)
+            collection.add(score);
+        return collection.statistics();
+    }
+}
@@ -0,0 +1,74 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package benchmarks;
+
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.*;
+
+import util.*;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SparseArrayBenchmark {
+    @Param({"1000", "100000"})
+    public int size;
+
+    private int[] keys;
+    private SparseArray<Object> filled;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keys = new ProfileData(42, 1, 2).shuffledKeys(size);
+        filled = fill(new SparseArray<>());
+    }
+
+    private SparseArray<Object> fill(SparseArray<Object> array) {
+        for (int key : keys)
+            array.put(key, Boolean.TRUE);
+        return array;
+    }
+
+    @Benchmark
+    public SparseArray<Object> putShuffled() {
+        return fill(new SparseArray<>());
+    }
+
+    @Benchmark
+    public SparseArray<Object> putAscending() {
+        SparseArray<Object> array = new SparseArray<>();
+        for (int i = 0; i < size; i++)
+            array.put(i, Boolean.TRUE);
+        return array;
+    }
+
+    @Benchmark
+    public SparseArray<Object> putAllSorted() {
+        int[] sorted = new int[size];
+        Object[] values = new Object[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = i;
+            values[i] = Boolean.TRUE;
+        }
+        SparseArray<Object> array = new SparseArray<>();
+        array.putAll(sorted, values);
+        return array;
+    }
+
+    @Benchmark
+    public void get(Blackhole blackhole) {
+        for (int key : keys)
+            blackhole.consume(filled.get(key));
+    }
+}
@@ -0,0 +1,54 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package benchmarks;
+
+import static org.junit.Assert.*;
+
+import iloveyouboss.*;
+
+import java.util.*;
+
+import org.junit.*;
+
+public class ProfileDataTest {
+    @Test
+    public void sameSeedGivesSamePool() {
+        ProfilePool first = new ProfileData(42, 16, 5).pool(100, 0.9);
+        ProfilePool second = new ProfileData(42, 16, 5).pool(100, 0.9);
+
+        for (int row = 0; row < 100; row++)
+            assertEquals(first.profiles().get(row).getAnswers().toString(),
+                    second.profiles().get(row).getAnswers().toString());
+    }
+
+    @Test
+    public void answerRateControlsHowManyQuestionsAreAnswered() {
+        ProfileData data = new ProfileData(1, 64, 5);
+
+        assertEquals(64, data.profile("all", 1.0).getAnswers().size());
+        assertEquals(0, data.profile("none", 0.0).getAnswers().size());
+    }
+
+    @Test
+    public void preferencesMixHasNoMustMatch() {
+        Criteria criteria = new ProfileData(7, 16, 5).criteria(200, ProfileData.WeightMix.PREFERENCES);
+
+        for (Criterion criterion : criteria)
+            assertNotEquals(Weight.MustMatch, criterion.getWeight());
+    }
+
+    @Test
+    public void shuffledKeysAreAPermutation() {
+        int[] keys = new ProfileData(3, 1, 2).shuffledKeys(1000);
+
+        Arrays.sort(keys);
+        for (int i = 0; i < keys.length; i++)
+            assertEquals(i * 7, keys[i]);
+    }
+}
@@ -42,4 +42,8 @@ public class Answer {
     public Question getQuestion() {
         return question;
     }
+
+    public int getIndex() {
+        return i;
+    }
 }
@@ -0,0 +1,165 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import java.util.*;
+import java.util.stream.*;
+
+import util.*;
+
+public class AnswerIndex {
+    private final List<Profile> profiles;
+    private final int size;
+    // rowsWithChoice.get(id)[c]: rows that answered question id with choice c
+    private final Map<Integer, BitSet[]> rowsWithChoice = new HashMap<>();
+    // rowsMatching.get(id)[c]: rows whose answer matches a criterion expecting c;
+    // for percentile questions these are cumulative (every choice <= c)
+    private final Map<Integer, BitSet[]> rowsMatching = new HashMap<>();
+
+    public AnswerIndex(ColumnarProfilePool pool) {
+        profiles = pool.profiles();
+        size = pool.size();
+        for (Map.Entry<Integer, byte[]> entry : pool.columns().entrySet()) {
+            Question question = pool.question(entry.getKey());
+            BitSet[] byChoice = byChoice(entry.getValue(), question.getAnswerChoiceCount());
+            rowsWithChoice.put(entry.getKey(), byChoice);
+            rowsMatching.put(entry.getKey(), matching(question, byChoice));
+        }
+    }
+
+    private BitSet[] byChoice(byte[] column, int choices) {
+        BitSet[] byChoice = new BitSet[choices];
+        for (int c = 0; c < choices; c++)
+            byChoice[c] = new BitSet(size);
+        for (int row = 0; row < size; row++)
+            if (column[row] != ColumnarProfilePool.UNANSWERED)
+                byChoice[column[row]].set(row);
+        return byChoice;
+    }
+
+    private static BitSet[] matching(Question question, BitSet[] byChoice) {
+        BitSet[] matching = new BitSet[byChoice.length];
+        for (int expected = 0; expected < byChoice.length; expected++) {
+            matching[expected] = new BitSet();
+            for (int actual = 0; actual < byChoice.length; actual++)
+                if (question.match(actual, expected))
+                    matching[expected].or(byChoice[actual]);
+        }
+        return matching;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // copies; the index's own posting lists are never handed out
+    public BitSet rowsWithChoice(int questionId, int choice) {
+        return copy(lookup(rowsWithChoice, questionId, choice));
+    }
+
+    public BitSet rowsMatching(int questionId, int expected) {
+        return copy(lookup(rowsMatching, questionId, expected));
+    }
+
+    private static BitSet copy(BitSet rows) {
+        return rows == null ? new BitSet() : (BitSet) rows.clone();
+    }
+
+    // the posting list itself, or null if no row can have that answer
+    private static BitSet lookup(Map<Integer, BitSet[]> index, int questionId, int choice) {
+        BitSet[] byChoice = index.get(questionId);
+        if (byChoice == null || choice < 0 || choice >= byChoice.length)
+            return null;
+        return byChoice[choice];
+    }
+
+    // Lazy, in row order. Rows come from the posting lists built with this index and
+    // each answer is re-tested, so answers changed since then are filtered out (but
+    // answers added since are not found).
+    public Stream<Answer> find(AnswerQuery query) {
+        if (!query.isIndexable())
+            return profiles.subList(0, size).stream().flatMap(profile -> profile.answers(query));
+        int questionId = query.questionId();
+        return rows(questionId, query.choices()).stream()
+                .mapToObj(row -> profiles.get(row).getAnswer(questionId))
+                .filter(answer -> answer != null && query.test(answer));
+    }
+
+    private BitSet rows(int questionId, BitSet choices) {
+        BitSet[] byChoice = rowsWithChoice.get(questionId);
+        if (byChoice == null) return new BitSet();
+        if (choices != null && choices.cardinality() == 1)
+            return copy(lookup(rowsWithChoice, questionId, choices.nextSetBit(0)));
+        BitSet rows = new BitSet(size);
+        for (int c = 0; c < byChoice.length; c++)
+            if (choices == null || choices.get(c))
+                rows.or(byChoice[c]);
+        return rows;
+    }
+
+    // rows that satisfy every MustMatch criterion
+    public BitSet candidates(CompiledCriteria criteria) {
+        BitSet candidates = new BitSet(size);
+        candidates.set(0, size);
+        for (int i = 0; i < criteria.mustMatchCount() && !candidates.isEmpty(); i++) {
+            BitSet matching = lookup(rowsMatching, criteria.questionId(i), criteria.expected(i));
+            if (matching == null)
+                candidates.clear();
+            else
+                candidates.and(matching);
+        }
+        return candidates;
+    }
+
+    public MatchResults score(Criteria criteria) {
+        return score(criteria.compile());
+    }
+
+    public MatchResults score(CompiledCriteria criteria) {
+        BitSet candidates = candidates(criteria);
+        long[] scores = new long[size];
+        boolean[] matches = new boolean[size];
+        accumulate(criteria, candidates, scores, matches);
+        return new MatchResults(profiles, scores, matches);
+    }
+
+    // the k best matching profiles, best first; only rows passing every MustMatch are looked at
+    public List<Profile> topK(Criteria criteria, int k) {
+        CompiledCriteria compiled = criteria.compile();
+        BitSet candidates = candidates(compiled);
+        long[] scores = new long[size];
+        boolean[] matches = new boolean[size];
+        accumulate(compiled, candidates, scores, matches);
+
+        BoundedScoreHeap heap = new BoundedScoreHeap(k);
+        for (int row = candidates.nextSetBit(0); row >= 0; row = candidates.nextSetBit(row + 1))
+            if (matches[row])
+                heap.offer(scores[row], row);
+
+        List<Profile> top = new ArrayList<>(heap.size());
+        for (int row : heap.ranked())
+            top.add(profiles.get(row));
+        return top;
+    }
+
+    private void accumulate(CompiledCriteria criteria, BitSet candidates, long[] scores, boolean[] matches) {
+        if (criteria.alwaysMatches() || criteria.mustMatchCount() > 0)
+            for (int row = candidates.nextSetBit(0); row >= 0; row = candidates.nextSetBit(row + 1))
+                matches[row] = true;
+        for (int i = criteria.mustMatchCount(); i < criteria.size(); i++) {
+            BitSet matching = rowsMatching(criteria.questionId(i), criteria.expected(i));
+            matching.and(candidates);
+            int weight = criteria.weight(i);
+            for (int row = matching.nextSetBit(0); row >= 0; row = matching.nextSetBit(row + 1)) {
+                scores[row] += weight;
+                matches[row] = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import java.util.*;
+import java.util.function.*;
+
+// A filter on answers that can say which question (and which choices) it is
+// about, so it can be answered from per-question posting lists. Queries made
+// with where() are opaque and can only be answered by testing every answer.
+public class AnswerQuery implements Predicate<Answer> {
+    static final int ANY_QUESTION = -1;
+
+    private final int questionId;
+    // null means any choice
+    private final BitSet choices;
+    private final Predicate<Answer> residual;
+
+    private AnswerQuery(int questionId, BitSet choices, Predicate<Answer> residual) {
+        this.questionId = questionId;
+        this.choices = choices;
+        this.residual = residual;
+    }
+
+    public static AnswerQuery answered(int questionId) {
+        return new AnswerQuery(questionId, null, null);
+    }
+
+    public static AnswerQuery choiceIn(int questionId, int... choices) {
+        BitSet set = new BitSet();
+        for (int choice : choices)
+            if (choice >= 0)
+                set.set(choice);
+        return new AnswerQuery(questionId, set, null);
+    }
+
+    public static AnswerQuery choiceIn(Question question, String... choices) {
+        int[] indexes = new int[choices.length];
+        for (int i = 0; i < choices.length; i++)
+            indexes[i] = question.indexOf(choices[i]);
+        return choiceIn(question.getId(), indexes);
+    }
+
+    public static AnswerQuery where(Predicate<Answer> predicate) {
+        return new AnswerQuery(ANY_QUESTION, null, predicate);
+    }
+
+    // keeps this query's question and choices, and also tests predicate on each answer
+    @Override
+    public AnswerQuery and(Predicate<? super Answer> predicate) {
+        Predicate<Answer> more = predicate::test;
+        return new AnswerQuery(questionId, choices, residual == null ? more : residual.and(more));
+    }
+
+    public boolean isIndexable() {
+        return questionId != ANY_QUESTION;
+    }
+
+    int questionId() {
+        return questionId;
+    }
+
+    // choices the query accepts, or null when it accepts any choice
+    BitSet choices() {
+        return choices;
+    }
+
+    @Override
+    public boolean test(Answer answer) {
+        if (isIndexable() && answer.getQuestion().getId() != questionId) return false;
+        if (choices != null && (answer.getIndex() < 0 || !choices.get(answer.getIndex()))) return false;
+        return residual == null || residual.test(answer);
+    }
+
+    @Override
+    public String toString() {
+        if (!isIndexable()) return "answers where <predicate>";
+        return "question " + questionId + (choices == null ? " answered" : " choice in " + choices) +
+                (residual == null ? "" : " and <predicate>");
+    }
+}
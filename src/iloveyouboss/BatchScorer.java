@@ -0,0 +1,123 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import java.util.*;
+
+import util.*;
+
+// Scores many criteria in one pass over a pool. Criteria are grouped by question
+// id so each profile's answer to a question is read once for all queries asking it.
+// Holds per-profile scratch state, so use one instance per thread.
+public class BatchScorer {
+    private final CompiledCriteria[] queries;
+    private final int[] questionIds;
+    // criteria on questionIds[g] are entries groupStart[g] until groupStart[g + 1]
+    private final int[] groupStart;
+    private final int[] entryQuery;
+    private final int[] entryCriterion;
+
+    private final long[] scores;
+    private final boolean[] failed;
+    private final boolean[] anyMatches;
+
+    public BatchScorer(List<Criteria> criteria) {
+        this(compile(criteria));
+    }
+
+    private static List<CompiledCriteria> compile(List<Criteria> criteria) {
+        List<CompiledCriteria> compiled = new ArrayList<>(criteria.size());
+        for (Criteria each : criteria)
+            compiled.add(each.compile());
+        return compiled;
+    }
+
+    BatchScorer(Collection<CompiledCriteria> compiled) {
+        queries = compiled.toArray(new CompiledCriteria[0]);
+        Map<Integer, List<int[]>> byQuestion = new TreeMap<>();
+        for (int q = 0; q < queries.length; q++)
+            for (int i = 0; i < queries[q].size(); i++)
+                byQuestion.computeIfAbsent(queries[q].questionId(i), id -> new ArrayList<>()).add(new int[]{q, i});
+
+        questionIds = new int[byQuestion.size()];
+        groupStart = new int[byQuestion.size() + 1];
+        int entries = byQuestion.values().stream().mapToInt(List::size).sum();
+        entryQuery = new int[entries];
+        entryCriterion = new int[entries];
+        int g = 0;
+        int e = 0;
+        for (Map.Entry<Integer, List<int[]>> group : byQuestion.entrySet()) {
+            questionIds[g] = group.getKey();
+            groupStart[g++] = e;
+            for (int[] entry : group.getValue()) {
+                entryQuery[e] = entry[0];
+                entryCriterion[e++] = entry[1];
+            }
+        }
+        groupStart[g] = e;
+
+        scores = new long[queries.length];
+        failed = new boolean[queries.length];
+        anyMatches = new boolean[queries.length];
+    }
+
+    public int size() {
+        return queries.length;
+    }
+
+    // one top-K list of matching profiles per criteria, in the order they were given
+    public List<List<Profile>> topK(ProfilePool pool, int k) {
+        List<Profile> profiles = pool.profiles();
+        BoundedScoreHeap[] heaps = new BoundedScoreHeap[queries.length];
+        for (int q = 0; q < heaps.length; q++)
+            heaps[q] = new BoundedScoreHeap(k);
+        for (int row = 0; row < profiles.size(); row++)
+            offer(profiles.get(row), row, heaps);
+
+        List<List<Profile>> results = new ArrayList<>(queries.length);
+        for (BoundedScoreHeap heap : heaps)
+            results.add(rows(profiles, heap));
+        return results;
+    }
+
+    static List<Profile> rows(List<Profile> profiles, BoundedScoreHeap heap) {
+        List<Profile> top = new ArrayList<>(heap.size());
+        for (int row : heap.ranked())
+            top.add(profiles.get(row));
+        return top;
+    }
+
+    // scores one profile against every query whose heap is not null
+    void offer(Profile profile, int row, BoundedScoreHeap[] heaps) {
+        for (int q = 0; q < queries.length; q++) {
+            scores[q] = 0;
+            failed[q] = heaps[q] == null;
+            anyMatches[q] = queries[q].alwaysMatches();
+        }
+        for (int g = 0; g < questionIds.length; g++) {
+            Answer answer = profile.getAnswer(questionIds[g]);
+            int choice = answer == null ? ColumnarProfilePool.UNANSWERED : answer.getIndex();
+            for (int e = groupStart[g]; e < groupStart[g + 1]; e++) {
+                int q = entryQuery[e];
+                if (failed[q]) continue;
+                CompiledCriteria criteria = queries[q];
+                int i = entryCriterion[e];
+                if (criteria.test(i, choice)) {
+                    scores[q] += criteria.weight(i);
+                    anyMatches[q] = true;
+                } else if (criteria.isMustMatch(i)) {
+                    failed[q] = true;
+                }
+            }
+        }
+        for (int q = 0; q < queries.length; q++)
+            if (heaps[q] != null && !failed[q] && anyMatches[q])
+                heaps[q].offer(scores[q], row);
+    }
+}
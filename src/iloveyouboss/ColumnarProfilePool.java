@@ -0,0 +1,107 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import java.util.*;
+
+public class ColumnarProfilePool {
+    public static final byte UNANSWERED = -1;
+
+    private final List<Profile> profiles;
+    // one column per question id; column[row] is that profile's answer index
+    private final Map<Integer, byte[]> columns = new HashMap<>();
+    private final Map<Integer, Question> questions = new HashMap<>();
+
+    public ColumnarProfilePool(List<Profile> profiles) {
+        this.profiles = new ArrayList<>(profiles);
+        for (int row = 0; row < this.profiles.size(); row++)
+            for (Answer answer : this.profiles.get(row).getAnswers())
+                column(answer.getQuestion())[row] = (byte) answer.getIndex();
+    }
+
+    private byte[] column(Question question) {
+        byte[] column = columns.get(question.getId());
+        if (column == null) {
+            if (question.getAnswerChoiceCount() > Byte.MAX_VALUE)
+                throw new IllegalArgumentException("too many answer choices for question " + question.getId());
+            column = new byte[profiles.size()];
+            Arrays.fill(column, UNANSWERED);
+            columns.put(question.getId(), column);
+            questions.put(question.getId(), question);
+        }
+        return column;
+    }
+
+    public int size() {
+        return profiles.size();
+    }
+
+    public Profile profile(int row) {
+        return profiles.get(row);
+    }
+
+    List<Profile> profiles() {
+        return profiles;
+    }
+
+    Map<Integer, byte[]> columns() {
+        return columns;
+    }
+
+    Question question(int questionId) {
+        return questions.get(questionId);
+    }
+
+    public AnswerIndex index() {
+        return new AnswerIndex(this);
+    }
+
+    public MatchResults score(Criteria criteria) {
+        return score(criteria.compile());
+    }
+
+    public MatchResults score(CompiledCriteria criteria) {
+        int size = profiles.size();
+        long[] scores = new long[size];
+        boolean[] killed = new boolean[size];
+        boolean[] anyMatches = new boolean[size];
+        if (criteria.alwaysMatches())
+            Arrays.fill(anyMatches, true);
+
+        for (int i = 0; i < criteria.size(); i++) {
+            byte[] column = columns.get(criteria.questionId(i));
+            if (column == null) {
+                if (criteria.isMustMatch(i))
+                    Arrays.fill(killed, true);
+                continue;
+            }
+            int weight = criteria.weight(i);
+            boolean mustMatch = criteria.isMustMatch(i);
+            for (int row = 0; row < size; row++) {
+                if (killed[row])
+                    continue;
+                if (criteria.test(i, column[row])) {
+                    scores[row] += weight;
+                    anyMatches[row] = true;
+                } else if (mustMatch)
+                    killed[row] = true;
+            }
+        }
+
+        boolean[] matches = new boolean[size];
+        for (int row = 0; row < size; row++)
+            matches[row] = anyMatches[row] && !killed[row];
+        return new MatchResults(profiles, scores, matches);
+    }
+
+    // matching profiles only, best first
+    public List<Profile> ranked(Criteria criteria) {
+        return score(criteria).ranked();
+    }
+}
@@ -0,0 +1,113 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import java.util.*;
+
+public final class CompiledCriteria {
+    private static final int EQUAL = 0;
+    private static final int AT_MOST = 1;
+    private static final int OTHER = 2;
+
+    private final int[] questionIds;
+    private final Question[] questions;
+    private final int[] expected;
+    private final int[] kinds;
+    private final int[] weights;
+    // remainingWeight[i] is the most that criteria i..size-1 can still add
+    private final long[] remainingWeight;
+    private final int mustMatchCount;
+    private final boolean alwaysMatches;
+
+    CompiledCriteria(Criteria criteria) {
+        List<Criterion> ordered = new ArrayList<>();
+        boolean dontCare = false;
+        for (Criterion criterion : criteria)
+            if (criterion.getWeight() == Weight.MustMatch)
+                ordered.add(criterion);
+        int mustMatches = ordered.size();
+        for (Criterion criterion : criteria)
+            if (criterion.getWeight() == Weight.DontCare)
+                dontCare = true;
+            else if (criterion.getWeight() != Weight.MustMatch)
+                ordered.add(criterion);
+
+        int size = ordered.size();
+        questionIds = new int[size];
+        questions = new Question[size];
+        expected = new int[size];
+        kinds = new int[size];
+        weights = new int[size];
+        for (int i = 0; i < size; i++) {
+            Answer answer = ordered.get(i).getAnswer();
+            questions[i] = answer.getQuestion();
+            questionIds[i] = questions[i].getId();
+            expected[i] = answer.getIndex();
+            kinds[i] = kindOf(questions[i]);
+            // MustMatch is a gate, not a score: its MAX_VALUE weight would swamp every other weight
+            weights[i] = i < mustMatches ? 0 : ordered.get(i).getWeight().getValue();
+        }
+        remainingWeight = new long[size + 1];
+        for (int i = size - 1; i >= 0; i--)
+            remainingWeight[i] = remainingWeight[i + 1] + weights[i];
+        mustMatchCount = mustMatches;
+        // a DontCare criterion always counts as a match, so it only matters for matches()
+        alwaysMatches = dontCare;
+    }
+
+    private static int kindOf(Question question) {
+        if (question.getClass() == BooleanQuestion.class) return EQUAL;
+        if (question.getClass() == PercentileQuestion.class) return AT_MOST;
+        return OTHER;
+    }
+
+    public int size() {
+        return questionIds.length;
+    }
+
+    public int questionId(int i) {
+        return questionIds[i];
+    }
+
+    public int expected(int i) {
+        return expected[i];
+    }
+
+    public int weight(int i) {
+        return weights[i];
+    }
+
+    public long remainingWeight(int i) {
+        return remainingWeight[i];
+    }
+
+    public boolean isMustMatch(int i) {
+        return i < mustMatchCount;
+    }
+
+    public int mustMatchCount() {
+        return mustMatchCount;
+    }
+
+    public boolean alwaysMatches() {
+        return alwaysMatches;
+    }
+
+    public boolean test(int i, int choice) {
+        if (choice == ColumnarProfilePool.UNANSWERED) return false;
+        switch (kinds[i]) {
+            case EQUAL:
+                return choice == expected[i];
+            case AT_MOST:
+                return choice <= expected[i];
+            default:
+                return questions[i].match(choice, expected[i]);
+        }
+    }
+}
@@ -23,12 +23,17 @@ public class Criteria implements Iterable<Criterion> {
         return criteria.iterator();
     }
 
+    public CompiledCriteria compile() {
+        return new CompiledCriteria(this);
+    }
+
     public int arithmeticMean() {
         return 0;
     }
 
     public double geometricMean(int[] numbers) {
-        int totalProduct = Arrays.stream(numbers).reduce(1, (product, number) -> product * number);
-        return Math.pow(totalProduct, 1.0 / numbers.length);
+        // summing logs instead of multiplying keeps large inputs from overflowing
+        double logSum = Arrays.stream(numbers).mapToDouble(Math::log).sum();
+        return Math.exp(logSum / numbers.length);
     }
 }
@@ -0,0 +1,56 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import java.util.*;
+
+// Identifies a Criteria by its (question id, expected answer, weight) entries,
+// ignoring order, since criteria order never changes a score.
+public final class CriteriaFingerprint {
+    private final long[] entries;
+    private final int hashCode;
+
+    public CriteriaFingerprint(Criteria criteria) {
+        List<Long> packed = new ArrayList<>();
+        for (Criterion criterion : criteria) {
+            Answer answer = criterion.getAnswer();
+            packed.add(((long) answer.getQuestion().getId() << 32)
+                    | ((answer.getIndex() & 0xFFFFFFL) << 8)
+                    | criterion.getWeight().ordinal());
+        }
+        entries = packed.stream().mapToLong(Long::longValue).sorted().toArray();
+        hashCode = Arrays.hashCode(entries);
+    }
+
+    // stable 64-bit digest of the entries, e.g. for logging
+    public long value() {
+        long hash = 0xcbf29ce484222325L;
+        for (long entry : entries) {
+            hash ^= entry;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof CriteriaFingerprint
+                && Arrays.equals(entries, ((CriteriaFingerprint) other).entries);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x", value());
+    }
+}
@@ -0,0 +1,88 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import java.util.*;
+
+// keeps the scores and ranking of every registered search up to date as the pool changes;
+// updates and queries are serialized on the scorer. Profile.add notifies while holding the
+// profile's lock, so anything here that reads a profile's answers locks the profile first.
+public class IncrementalScorer implements PoolListener {
+    private final ProfilePool pool;
+    private final List<Profile> profiles = new ArrayList<>();
+    private final Map<Profile, Integer> rows = new IdentityHashMap<>();
+    private final List<SavedSearch> searches = new ArrayList<>();
+
+    public IncrementalScorer(ProfilePool pool) {
+        this.pool = pool;
+        // listen first so no profile added in between is missed; profileAdded ignores repeats
+        pool.addListener(this);
+        for (Profile profile : pool.profiles())
+            profileAdded(profile);
+    }
+
+    public SavedSearch register(Criteria criteria) {
+        SavedSearch search = new SavedSearch(this, criteria);
+        List<Profile> existing;
+        synchronized (this) {
+            // changes to rows not yet loaded are ignored; loading reads the latest answers
+            searches.add(search);
+            existing = new ArrayList<>(profiles);
+        }
+        for (int row = 0; row < existing.size(); row++) {
+            Profile profile = existing.get(row);
+            synchronized (profile) {
+                synchronized (this) {
+                    search.profileAdded(row, profile);
+                }
+            }
+        }
+        return search;
+    }
+
+    public synchronized void unregister(SavedSearch search) {
+        searches.remove(search);
+    }
+
+    public void close() {
+        pool.removeListener(this);
+    }
+
+    @Override
+    public void profileAdded(Profile profile) {
+        synchronized (profile) {
+            synchronized (this) {
+                if (rows.containsKey(profile)) return;
+                int row = profiles.size();
+                profiles.add(profile);
+                rows.put(profile, row);
+                for (SavedSearch search : searches)
+                    search.profileAdded(row, profile);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void answerChanged(Profile profile, Answer previous, Answer current) {
+        Integer row = rows.get(profile);
+        if (row == null) return;
+        for (SavedSearch search : searches)
+            search.answerChanged(row, previous, current);
+    }
+
+    synchronized int row(Profile profile) {
+        Integer row = rows.get(profile);
+        if (row == null) throw new IllegalArgumentException("profile not in pool: " + profile);
+        return row;
+    }
+
+    synchronized Profile profile(int row) {
+        return profiles.get(row);
+    }
+}
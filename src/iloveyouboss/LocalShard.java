@@ -0,0 +1,42 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import java.util.*;
+
+public class LocalShard implements Shard {
+    private final ProfilePool pool;
+
+    public LocalShard() {
+        this(new ProfilePool());
+    }
+
+    public LocalShard(ProfilePool pool) {
+        this.pool = pool;
+    }
+
+    public ProfilePool pool() {
+        return pool;
+    }
+
+    @Override
+    public void add(Profile profile) {
+        pool.add(profile);
+    }
+
+    @Override
+    public int size() {
+        return pool.profiles().size();
+    }
+
+    @Override
+    public List<ScoredProfile> topK(Criteria criteria, int k) {
+        return pool.scoredTopK(criteria, k);
+    }
+}
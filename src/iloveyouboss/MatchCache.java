@@ -0,0 +1,133 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import java.util.*;
+
+// LRU cache of scoring and ranking results. Entries are tagged with the pool
+// version they were computed at, so any pool change makes them stale.
+public class MatchCache {
+    private final ProfilePool pool;
+    private final Map<Object, CachedResult> entries;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    private static class CachedResult {
+        final long version;
+        final Object value;
+
+        CachedResult(long version, Object value) {
+            this.version = version;
+            this.value = value;
+        }
+    }
+
+    private static class TopKKey {
+        final CriteriaFingerprint fingerprint;
+        final int k;
+
+        TopKKey(CriteriaFingerprint fingerprint, int k) {
+            this.fingerprint = fingerprint;
+            this.k = k;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof TopKKey
+                    && k == ((TopKKey) other).k
+                    && fingerprint.equals(((TopKKey) other).fingerprint);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * fingerprint.hashCode() + k;
+        }
+    }
+
+    public MatchCache(ProfilePool pool, int maxEntries) {
+        if (maxEntries <= 0) throw new IllegalArgumentException("maxEntries " + maxEntries);
+        this.pool = pool;
+        this.entries = new LinkedHashMap<Object, CachedResult>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, CachedResult> eldest) {
+                if (size() <= maxEntries) return false;
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    public MatchResults score(Criteria criteria) {
+        CriteriaFingerprint key = new CriteriaFingerprint(criteria);
+        MatchResults cached = lookup(key);
+        if (cached != null) return cached;
+        long version = pool.version();
+        MatchResults results = pool.parallelScore(criteria);
+        store(key, version, results);
+        return results;
+    }
+
+    public List<Profile> topK(Criteria criteria, int k) {
+        TopKKey key = new TopKKey(new CriteriaFingerprint(criteria), k);
+        List<Profile> cached = lookup(key);
+        if (cached != null) return cached;
+        long version = pool.version();
+        List<Profile> top = Collections.unmodifiableList(pool.topK(criteria, k));
+        store(key, version, top);
+        return top;
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized <T> T lookup(Object key) {
+        CachedResult cached = entries.get(key);
+        if (cached != null && cached.version == pool.version()) {
+            hits++;
+            MatchMetrics.global().recordCacheLookup(true);
+            return (T) cached.value;
+        }
+        if (cached != null)
+            entries.remove(key);
+        misses++;
+        MatchMetrics.global().recordCacheLookup(false);
+        return null;
+    }
+
+    private synchronized void store(Object key, long version, Object value) {
+        if (version == pool.version())
+            entries.put(key, new CachedResult(version, value));
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    public synchronized double hitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+}
@@ -0,0 +1,267 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import java.lang.management.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import javax.management.*;
+
+import util.*;
+
+// Latency, evaluation and cache counters for the matching hot paths. Off unless
+// enabled (or started with -Diloveyouboss.metrics=true); while off, start()
+// hands back a shared sample whose stop() does nothing.
+public class MatchMetrics implements MatchMetricsMBean {
+    public static final String OBJECT_NAME = "iloveyouboss:type=MatchMetrics";
+    private static final MatchMetrics GLOBAL = new MatchMetrics(Boolean.getBoolean("iloveyouboss.metrics"));
+
+    public enum Operation {
+        SCORE, RANK, TOP_K
+    }
+
+    private volatile boolean enabled;
+    private volatile PruningStats evaluations = new PruningStats();
+    private final Map<Operation, AtomicLogHistogram> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> totalNanos = new EnumMap<>(Operation.class);
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder criteria = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final com.sun.management.ThreadMXBean threads;
+
+    private static final Sample DISABLED = new Sample(null, null, 0, 0);
+
+    public static class Sample {
+        private final MatchMetrics metrics;
+        private final Operation operation;
+        private final long start;
+        private final long allocatedAtStart;
+
+        Sample(MatchMetrics metrics, Operation operation, long start, long allocatedAtStart) {
+            this.metrics = metrics;
+            this.operation = operation;
+            this.start = start;
+            this.allocatedAtStart = allocatedAtStart;
+        }
+
+        public void stop() {
+            if (metrics != null)
+                metrics.record(operation, System.nanoTime() - start, allocatedAtStart);
+        }
+    }
+
+    public MatchMetrics() {
+        this(false);
+    }
+
+    public MatchMetrics(boolean enabled) {
+        this.enabled = enabled;
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new AtomicLogHistogram());
+            totalNanos.put(operation, new LongAdder());
+        }
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        threads = bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()
+                ? (com.sun.management.ThreadMXBean) bean : null;
+    }
+
+    public static MatchMetrics global() {
+        return GLOBAL;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Sample start(Operation operation) {
+        if (!enabled) return DISABLED;
+        return new Sample(this, operation, System.nanoTime(), allocatedByThisThread());
+    }
+
+    public Sample start(Operation operation, CompiledCriteria query) {
+        if (!enabled) return DISABLED;
+        queries.increment();
+        criteria.add(query.size());
+        return start(operation);
+    }
+
+    private void record(Operation operation, long nanos, long allocatedAtStart) {
+        latencies.get(operation).record(nanos);
+        totalNanos.get(operation).add(nanos);
+        // only counts the calling thread, so forked work is not included
+        if (allocatedAtStart >= 0)
+            allocatedBytes.add(allocatedByThisThread() - allocatedAtStart);
+    }
+
+    private long allocatedByThisThread() {
+        return threads == null ? -1 : threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    // where to count profile evaluations, or null while disabled
+    PruningStats evaluations() {
+        return enabled ? evaluations : null;
+    }
+
+    void recordCacheLookup(boolean hit) {
+        if (!enabled) return;
+        if (hit) cacheHits.increment();
+        else cacheMisses.increment();
+    }
+
+    public LogHistogram latencies(Operation operation) {
+        return latencies.get(operation).snapshot();
+    }
+
+    public long totalLatency(Operation operation, TimeUnit unit) {
+        return unit.convert(totalNanos.get(operation).sum(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public long getProfilesEvaluated() {
+        return evaluations.profilesEvaluated();
+    }
+
+    @Override
+    public long getRejectedByMustMatch() {
+        return evaluations.rejectedByMustMatch();
+    }
+
+    @Override
+    public long getPrunedByThreshold() {
+        return evaluations.prunedByThreshold();
+    }
+
+    @Override
+    public double getCriteriaPerQuery() {
+        long count = queries.sum();
+        return count == 0 ? 0 : (double) criteria.sum() / count;
+    }
+
+    @Override
+    public double getCacheHitRate() {
+        long hits = cacheHits.sum();
+        long lookups = hits + cacheMisses.sum();
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public long getAllocatedBytes() {
+        return allocatedBytes.sum();
+    }
+
+    @Override
+    public long getScoreCount() {
+        return latencies(Operation.SCORE).count();
+    }
+
+    @Override
+    public long getScoreP99Micros() {
+        return latencyMicros(Operation.SCORE.name(), 0.99);
+    }
+
+    @Override
+    public long getRankCount() {
+        return latencies(Operation.RANK).count();
+    }
+
+    @Override
+    public long getRankP99Micros() {
+        return latencyMicros(Operation.RANK.name(), 0.99);
+    }
+
+    @Override
+    public long getTopKCount() {
+        return latencies(Operation.TOP_K).count();
+    }
+
+    @Override
+    public long getTopKP99Micros() {
+        return latencyMicros(Operation.TOP_K.name(), 0.99);
+    }
+
+    // 0 until the operation has been recorded
+    @Override
+    public long latencyMicros(String operation, double quantile) {
+        LogHistogram histogram = latencies(Operation.valueOf(operation));
+        return histogram.count() == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(histogram.quantile(quantile));
+    }
+
+    @Override
+    public void reset() {
+        evaluations = new PruningStats();
+        for (Operation operation : Operation.values()) {
+            latencies.get(operation).reset();
+            totalNanos.get(operation).reset();
+        }
+        queries.reset();
+        criteria.reset();
+        cacheHits.reset();
+        cacheMisses.reset();
+        allocatedBytes.reset();
+    }
+
+    public void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            throw new IllegalStateException("cannot register " + OBJECT_NAME, e);
+        }
+    }
+
+    public void unregister() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            throw new IllegalStateException("cannot unregister " + OBJECT_NAME, e);
+        }
+    }
+
+    // Prometheus text exposition format
+    public String toPrometheus() {
+        StringBuilder text = new StringBuilder();
+        counter(text, "match_profiles_evaluated_total", getProfilesEvaluated());
+        counter(text, "match_rejected_by_must_match_total", getRejectedByMustMatch());
+        counter(text, "match_pruned_by_threshold_total", getPrunedByThreshold());
+        counter(text, "match_queries_total", queries.sum());
+        counter(text, "match_criteria_total", criteria.sum());
+        counter(text, "match_cache_hits_total", cacheHits.sum());
+        counter(text, "match_cache_misses_total", cacheMisses.sum());
+        counter(text, "match_allocated_bytes_total", getAllocatedBytes());
+
+        text.append("# TYPE match_latency_seconds summary\n");
+        for (Operation operation : Operation.values()) {
+            LogHistogram histogram = latencies(operation);
+            String label = "operation=\"" + operation.name().toLowerCase(Locale.ROOT) + "\"";
+            if (histogram.count() > 0)
+                for (double quantile : new double[]{0.5, 0.9, 0.99})
+                    text.append(String.format(Locale.ROOT, "match_latency_seconds{%s,quantile=\"%s\"} %.9f%n",
+                            label, quantile, histogram.quantile(quantile) / 1e9));
+            text.append(String.format(Locale.ROOT, "match_latency_seconds_sum{%s} %.9f%n",
+                    label, totalNanos.get(operation).sum() / 1e9));
+            text.append(String.format(Locale.ROOT, "match_latency_seconds_count{%s} %d%n",
+                    label, histogram.count()));
+        }
+        return text.toString();
+    }
+
+    private static void counter(StringBuilder text, String name, long value) {
+        text.append("# TYPE ").append(name).append(" counter\n");
+        text.append(name).append(' ').append(value).append('\n');
+    }
+}
@@ -0,0 +1,43 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+public interface MatchMetricsMBean {
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    long getProfilesEvaluated();
+
+    long getRejectedByMustMatch();
+
+    long getPrunedByThreshold();
+
+    double getCriteriaPerQuery();
+
+    double getCacheHitRate();
+
+    long getAllocatedBytes();
+
+    long getScoreCount();
+
+    long getScoreP99Micros();
+
+    long getRankCount();
+
+    long getRankP99Micros();
+
+    long getTopKCount();
+
+    long getTopKP99Micros();
+
+    long latencyMicros(String operation, double quantile);
+
+    void reset();
+}
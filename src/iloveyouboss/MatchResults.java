@@ -0,0 +1,59 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import java.util.*;
+
+import util.*;
+
+public class MatchResults {
+    private final List<Profile> profiles;
+    private final long[] scores;
+    private final boolean[] matches;
+
+    MatchResults(List<Profile> profiles, long[] scores, boolean[] matches) {
+        this.profiles = profiles;
+        this.scores = scores;
+        this.matches = matches;
+    }
+
+    public int size() {
+        return scores.length;
+    }
+
+    public Profile profile(int row) {
+        return profiles.get(row);
+    }
+
+    public long score(int row) {
+        return scores[row];
+    }
+
+    public boolean matches(int row) {
+        return matches[row];
+    }
+
+    // every matching profile, best first, lower row on ties. Unlike ProfilePool.ranked(),
+    // profiles that do not match are left out; otherwise the order is the same.
+    public List<Profile> ranked() {
+        return topK(scores.length);
+    }
+
+    // the k best matching profiles, best first
+    public List<Profile> topK(int k) {
+        BoundedScoreHeap heap = new BoundedScoreHeap(k);
+        for (int row = 0; row < scores.length; row++)
+            if (matches[row])
+                heap.offer(scores[row], row);
+        List<Profile> top = new ArrayList<>(heap.size());
+        for (int row : heap.ranked())
+            top.add(profiles.get(row));
+        return top;
+    }
+}
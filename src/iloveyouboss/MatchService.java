@@ -0,0 +1,220 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import util.*;
+
+// Serves top-K match queries against a pool. Queries that arrive within the same
+// tick share one BatchScorer scan of the pool; each query keeps its own deadline,
+// and the number of queries admitted at once is capped.
+public class MatchService implements AutoCloseable {
+    static final int DEADLINE_CHECK_INTERVAL = 1024;
+
+    private final ProfilePool pool;
+    private final Semaphore admission;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService ticker;
+    private final Queue<Query> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong scans = new AtomicLong();
+    private volatile boolean closed = false;
+
+    private static class Query {
+        final CompiledCriteria criteria;
+        final int k;
+        final long deadline;
+        final CompletableFuture<List<Profile>> result = new CompletableFuture<>();
+
+        Query(CompiledCriteria criteria, int k, long deadline) {
+            this.criteria = criteria;
+            this.k = k;
+            this.deadline = deadline;
+        }
+    }
+
+    // tickMillis 0 runs every query on its own as soon as it is admitted
+    public MatchService(ProfilePool pool, int maxConcurrentQueries, long tickMillis) {
+        this.pool = pool;
+        this.admission = new Semaphore(maxConcurrentQueries);
+        this.executor = queryExecutor();
+        if (tickMillis > 0) {
+            ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "match-service-ticker");
+                thread.setDaemon(true);
+                return thread;
+            });
+            ticker.scheduleAtFixedRate(this::dispatchPending, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        } else {
+            ticker = null;
+        }
+    }
+
+    // a virtual thread per task when the JVM has them (Java 21+), otherwise a cached pool
+    private static ExecutorService queryExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "match-service-query");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public CompletableFuture<List<Profile>> submit(Criteria criteria, int k, long timeout, TimeUnit unit) {
+        // bad arguments fail here, before they take a permit or reach a shared scan
+        if (k < 0) throw new IllegalArgumentException("k " + k);
+        if (timeout < 0) throw new IllegalArgumentException("timeout " + timeout);
+        CompiledCriteria compiled = criteria.compile();
+        if (closed) throw new RejectedExecutionException("match service closed");
+        if (!admission.tryAcquire()) {
+            rejected.incrementAndGet();
+            CompletableFuture<List<Profile>> refused = new CompletableFuture<>();
+            refused.completeExceptionally(new RejectedExecutionException("too many queries in flight"));
+            return refused;
+        }
+        Query query = new Query(compiled, k, System.nanoTime() + unit.toNanos(timeout));
+        query.result.whenComplete((profiles, failure) -> admission.release());
+        try {
+            if (ticker == null) {
+                executor.execute(() -> scan(Collections.singletonList(query)));
+            } else {
+                pending.add(query);
+                // close() may have drained pending between the check above and the add
+                if (closed && pending.remove(query))
+                    query.result.completeExceptionally(new RejectedExecutionException("match service closed"));
+            }
+        } catch (RejectedExecutionException e) {
+            query.result.completeExceptionally(e);
+        }
+        return query.result;
+    }
+
+    public List<Profile> query(Criteria criteria, int k, long timeout, TimeUnit unit) throws InterruptedException {
+        try {
+            return submit(criteria, k, timeout, unit).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void dispatchPending() {
+        List<Query> batch = new ArrayList<>();
+        for (Query query = pending.poll(); query != null; query = pending.poll())
+            batch.add(query);
+        if (batch.isEmpty()) return;
+        try {
+            executor.execute(() -> scan(batch));
+        } catch (RejectedExecutionException e) {
+            batch.forEach(query -> query.result.completeExceptionally(e));
+        }
+    }
+
+    private void scan(List<Query> batch) {
+        scans.incrementAndGet();
+        try {
+            scanPool(batch);
+        } catch (RuntimeException e) {
+            batch.forEach(query -> query.result.completeExceptionally(e));
+        } finally {
+            // even an Error must not leave callers waiting or holding permits
+            for (Query query : batch)
+                query.result.completeExceptionally(new IllegalStateException("match scan did not finish"));
+        }
+    }
+
+    private void scanPool(List<Query> batch) {
+        List<CompiledCriteria> criteria = new ArrayList<>(batch.size());
+        BoundedScoreHeap[] heaps = new BoundedScoreHeap[batch.size()];
+        for (int q = 0; q < batch.size(); q++) {
+            criteria.add(batch.get(q).criteria);
+            heaps[q] = new BoundedScoreHeap(batch.get(q).k);
+        }
+        BatchScorer scorer = new BatchScorer(criteria);
+
+        List<Profile> profiles = pool.profiles();
+        for (int row = 0; row < profiles.size(); row++) {
+            if (row % DEADLINE_CHECK_INTERVAL == 0 && dropFinished(batch, heaps) == 0)
+                return;
+            scorer.offer(profiles.get(row), row, heaps);
+        }
+        // counted before completing, like timedOut, so a caller woken by get() sees the count
+        for (int q = 0; q < batch.size(); q++) {
+            if (heaps[q] == null) continue;
+            List<Profile> top = BatchScorer.rows(profiles, heaps[q]);
+            completed.incrementAndGet();
+            if (!batch.get(q).result.complete(top))
+                completed.decrementAndGet();
+        }
+    }
+
+    // stops scoring queries that were cancelled or ran past their deadline; returns how many remain
+    private int dropFinished(List<Query> batch, BoundedScoreHeap[] heaps) {
+        long now = System.nanoTime();
+        int live = 0;
+        for (int q = 0; q < batch.size(); q++) {
+            Query query = batch.get(q);
+            if (heaps[q] == null) continue;
+            if (query.result.isDone()) {
+                heaps[q] = null;
+            } else if (now - query.deadline > 0) {
+                heaps[q] = null;
+                timedOut.incrementAndGet();
+                query.result.completeExceptionally(new QueryTimeoutException("query deadline passed"));
+            } else {
+                live++;
+            }
+        }
+        return live;
+    }
+
+    public long rejected() {
+        return rejected.get();
+    }
+
+    public long timedOut() {
+        return timedOut.get();
+    }
+
+    public long completed() {
+        return completed.get();
+    }
+
+    public long scans() {
+        return scans.get();
+    }
+
+    public int available() {
+        return admission.availablePermits();
+    }
+
+    // queries already submitted still run; later submits are rejected
+    @Override
+    public void close() {
+        closed = true;
+        if (ticker != null) {
+            ticker.shutdownNow();
+            dispatchPending();
+        }
+        executor.shutdown();
+        RejectedExecutionException rejection = new RejectedExecutionException("match service closed");
+        for (Query query = pending.poll(); query != null; query = pending.poll())
+            query.result.completeExceptionally(rejection);
+    }
+}
@@ -0,0 +1,365 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+import java.util.zip.*;
+
+// Append-only log of pool mutations. Listener callbacks only encode and queue a
+// record; one writer thread drains everything queued, writes it, and forces the
+// file once for the whole group. sync() completes once earlier records are durable.
+// File layout: MAGIC, VERSION, then records of [payload length][CRC32][payload],
+// where a payload is [type][name length][UTF-8 profile name] followed by either
+// [answer count][(question id, choice index)...] or one (question id, choice index).
+// Profiles are identified by name.
+// At most QUEUE_CAPACITY records wait for the writer. Past that, callbacks block
+// (holding the profile's lock) until it catches up, so a slow disk slows down
+// writers to the pool instead of growing the heap.
+// Callbacks run inside Profile.add after the new answer is already visible. Once
+// the log has failed or been closed they throw, so that change stays in memory
+// unlogged and pool listeners after this one do not hear about it; stop writing
+// to the pool, or detach the log, as soon as a write fails.
+public class MutationLog implements PoolListener, Closeable {
+    static final int MAGIC = 0x494C574C;
+    static final int VERSION = 1;
+    static final int FILE_HEADER = 8;
+    static final int RECORD_HEADER = 8;
+    private static final byte PROFILE_ADDED = 1;
+    private static final byte ANSWER_CHANGED = 2;
+    static final int QUEUE_CAPACITY = 64 * 1024;
+
+    private final FileChannel channel;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread writer;
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong forces = new AtomicLong();
+    private volatile IOException failure;
+    private volatile boolean closed = false;
+
+    private static class Pending {
+        final ByteBuffer record;
+        final CompletableFuture<Void> durable;
+
+        Pending(ByteBuffer record, CompletableFuture<Void> durable) {
+            this.record = record;
+            this.durable = durable;
+        }
+    }
+
+    private static final Pending CLOSE = new Pending(null, null);
+
+    public MutationLog(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.READ);
+        if (channel.size() == 0) {
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER);
+            header.putInt(MAGIC).putInt(VERSION).flip();
+            writeFully(channel, header);
+            channel.force(false);
+        } else {
+            checkHeader(channel, file);
+            // drop a record torn by a crash so new records follow the last good one
+            channel.truncate(validLength(channel));
+        }
+        channel.position(channel.size());
+        writer = new Thread(this::writeLoop, "mutation-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void profileAdded(Profile profile) {
+        // holding the profile's lock keeps a concurrent answer change from being logged ahead of this
+        synchronized (profile) {
+            Collection<Answer> answers = profile.getAnswers();
+            ByteBuffer payload = payload(PROFILE_ADDED, profile.getName(), 2 + answers.size() * ProfileWriter.ANSWER_SIZE);
+            payload.putShort((short) answers.size());
+            for (Answer answer : answers)
+                payload.putInt(answer.getQuestion().getId()).put((byte) answer.getIndex());
+            append(payload);
+        }
+    }
+
+    @Override
+    public void answerChanged(Profile profile, Answer previous, Answer current) {
+        ByteBuffer payload = payload(ANSWER_CHANGED, profile.getName(), ProfileWriter.ANSWER_SIZE);
+        payload.putInt(current.getQuestion().getId()).put((byte) current.getIndex());
+        append(payload);
+    }
+
+    private static ByteBuffer payload(byte type, String name, int bodyLength) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF || bodyLength > 0xFFFF + 2)
+            throw new IllegalArgumentException("profile too large to log: " + name);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + 1 + 2 + bytes.length + bodyLength);
+        record.position(RECORD_HEADER);
+        return record.put(type).putShort((short) bytes.length).put(bytes);
+    }
+
+    private CompletableFuture<Void> append(ByteBuffer record) {
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), RECORD_HEADER, record.position() - RECORD_HEADER);
+        record.putInt(0, record.position() - RECORD_HEADER).putInt(4, (int) crc.getValue());
+        record.flip();
+        return enqueue(record);
+    }
+
+    private CompletableFuture<Void> enqueue(ByteBuffer record) {
+        checkOpen();
+        Pending pending = new Pending(record, new CompletableFuture<>());
+        put(pending);
+        // the writer may have stopped after the check above; whoever removes the record completes it
+        if ((failure != null || closed) && queue.remove(pending)) {
+            try {
+                checkOpen();
+            } catch (RuntimeException e) {
+                pending.durable.completeExceptionally(e);
+                throw e;
+            }
+        }
+        return pending.durable;
+    }
+
+    // a listener callback has no way to report an interrupt, so keep waiting and pass it on
+    private void put(Pending pending) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(pending);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    private void checkOpen() {
+        if (failure != null) throw new UncheckedIOException("mutation log failed", failure);
+        if (closed) throw new IllegalStateException("mutation log closed");
+    }
+
+    // completes once every record queued before this call is on disk
+    public CompletableFuture<Void> sync() {
+        return enqueue(null);
+    }
+
+    private void writeLoop() {
+        List<Pending> group = new ArrayList<>();
+        boolean closing = false;
+        while (!closing) {
+            try {
+                group.add(queue.take());
+            } catch (InterruptedException e) {
+                closing = true;
+            }
+            queue.drainTo(group);
+            closing |= group.remove(CLOSE);
+            try {
+                boolean wrote = false;
+                for (Pending pending : group)
+                    if (pending.record != null) {
+                        writeFully(channel, pending.record);
+                        wrote = true;
+                    }
+                if (wrote) {
+                    channel.force(false);
+                    forces.incrementAndGet();
+                }
+                for (Pending pending : group) {
+                    if (pending.record != null) appended.incrementAndGet();
+                    pending.durable.complete(null);
+                }
+            } catch (IOException e) {
+                // set before draining, so enqueue sees it for anything added after the drain
+                failure = e;
+                group.forEach(pending -> pending.durable.completeExceptionally(e));
+                for (Pending pending = queue.poll(); pending != null; pending = queue.poll())
+                    if (pending != CLOSE) pending.durable.completeExceptionally(e);
+                return;
+            }
+            group.clear();
+        }
+    }
+
+    public long appended() {
+        return appended.get();
+    }
+
+    // one per group commit
+    public long forces() {
+        return forces.get();
+    }
+
+    // waits for queued records to be written; detach the log from its pool first
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        put(CLOSE);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } finally {
+            channel.close();
+        }
+        if (failure != null) throw failure;
+    }
+
+    // Applies the log to pool, which may already hold profiles from a snapshot.
+    // Attach a MutationLog to the pool only afterwards, or replay is logged again.
+    // Returns the number of records applied; a torn record at the end is ignored.
+    public static long replay(Path file, ProfilePool pool, IntFunction<Question> questions) throws IOException {
+        Map<String, Profile> byName = new HashMap<>();
+        for (Profile profile : pool.profiles())
+            byName.put(profile.getName(), profile);
+        return read(file, (type, name, answers) -> {
+            Profile profile = byName.get(name);
+            boolean added = profile == null;
+            if (added) {
+                profile = new Profile(name);
+                byName.put(name, profile);
+            }
+            for (int i = 0; i < answers.length; i += 2)
+                profile.add(new Answer(question(questions, answers[i]), answers[i + 1]));
+            if (added)
+                pool.add(profile);
+        });
+    }
+
+    private static Question question(IntFunction<Question> questions, int id) throws IOException {
+        Question question = questions.apply(id);
+        if (question == null) throw new IOException("mutation log refers to unknown question " + id);
+        return question;
+    }
+
+    // Rewrites source into target as one PROFILE_ADDED record per profile, keeping
+    // only the latest answer to each question. The new log is written beside target
+    // and moved over it once complete, so target is never left half written.
+    public static void compact(Path source, Path target) throws IOException {
+        Map<String, Map<Integer, Integer>> latest = new LinkedHashMap<>();
+        read(source, (type, name, answers) -> {
+            Map<Integer, Integer> choices = latest.computeIfAbsent(name, n -> new LinkedHashMap<>());
+            for (int i = 0; i < answers.length; i += 2)
+                choices.put(answers[i], answers[i + 1]);
+        });
+        Path directory = target.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+        try {
+            // close() waits for the writer, which forces every group it writes
+            try (MutationLog log = new MutationLog(temporary)) {
+                for (Map.Entry<String, Map<Integer, Integer>> profile : latest.entrySet()) {
+                    Map<Integer, Integer> choices = profile.getValue();
+                    ByteBuffer payload = payload(PROFILE_ADDED, profile.getKey(), 2 + choices.size() * ProfileWriter.ANSWER_SIZE);
+                    payload.putShort((short) choices.size());
+                    for (Map.Entry<Integer, Integer> choice : choices.entrySet())
+                        payload.putInt(choice.getKey()).put(choice.getValue().byteValue());
+                    log.append(payload);
+                }
+            }
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private interface RecordHandler {
+        // answers holds (question id, choice index) pairs
+        void handle(byte type, String name, int[] answers) throws IOException;
+    }
+
+    private static long read(Path file, RecordHandler handler) throws IOException {
+        long records = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            checkHeader(channel, file);
+            long end = validLength(channel);
+            ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER);
+            for (long position = FILE_HEADER; position < end; records++) {
+                header.clear();
+                readFully(channel, header, position);
+                ByteBuffer payload = ByteBuffer.allocate(header.getInt(0));
+                readFully(channel, payload, position + RECORD_HEADER);
+                payload.flip();
+                byte type = payload.get();
+                handler.handle(type, readName(payload), readAnswers(type, payload));
+                position += RECORD_HEADER + payload.capacity();
+            }
+        }
+        return records;
+    }
+
+    private static String readName(ByteBuffer payload) {
+        byte[] name = new byte[payload.getShort() & 0xFFFF];
+        payload.get(name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    private static int[] readAnswers(byte type, ByteBuffer payload) throws IOException {
+        if (type != PROFILE_ADDED && type != ANSWER_CHANGED)
+            throw new IOException("unknown mutation log record type " + type);
+        int count = type == ANSWER_CHANGED ? 1 : payload.getShort() & 0xFFFF;
+        int[] answers = new int[count * 2];
+        for (int i = 0; i < answers.length; i += 2) {
+            answers[i] = payload.getInt();
+            answers[i + 1] = payload.get();
+        }
+        return answers;
+    }
+
+    // length of the prefix made of whole records with matching checksums
+    private static long validLength(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long position = FILE_HEADER;
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER);
+        while (position + RECORD_HEADER <= size) {
+            header.clear();
+            readFully(channel, header, position);
+            int length = header.getInt(0);
+            if (length <= 0 || position + RECORD_HEADER + length > size) break;
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(channel, payload, position + RECORD_HEADER);
+            CRC32 crc = new CRC32();
+            crc.update(payload.array(), 0, length);
+            if ((int) crc.getValue() != header.getInt(4)) break;
+            position += RECORD_HEADER + length;
+        }
+        return position;
+    }
+
+    private static void checkHeader(FileChannel channel, Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER);
+        readFully(channel, header, 0);
+        if (header.getInt(0) != MAGIC)
+            throw new IOException("not a mutation log: " + file);
+        if (header.getInt(4) != VERSION)
+            throw new IOException("unsupported mutation log version " + header.getInt(4));
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) throw new EOFException();
+        }
+    }
+}
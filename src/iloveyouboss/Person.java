@@ -11,11 +11,18 @@ package iloveyouboss;
 import java.util.*;
 import java.util.stream.*;
 
+import util.*;
+
 public class Person {
     private List<Question> characteristics = new ArrayList<>();
+    private final IntSet.Builder characteristicIdBuilder = new IntSet.Builder();
+    // built on first read after an add, so adding n characteristics doesn't copy the set n times
+    private IntSet characteristicIds = IntSet.EMPTY;
 
     public void add(Question characteristic) {
         characteristics.add(characteristic);
+        characteristicIdBuilder.add(characteristic.getId());
+        characteristicIds = null;
     }
 
     public List<Question> getCharacteristics() {
@@ -26,6 +33,27 @@ public class Person {
         return characteristics.stream().filter(c -> c.getText().endsWith(questionPattern)).collect(Collectors.toList());
     }
 
+    public IntSet getCharacteristicIds() {
+        if (characteristicIds == null)
+            characteristicIds = characteristicIdBuilder.build();
+        return characteristicIds;
+    }
+
+    public IntSet characteristicIds(String questionPattern, QuestionSuffixIndex index) {
+        return index.endingWith(questionPattern).intersect(getCharacteristicIds());
+    }
+
+    // assumes the index was built from the same question vocabulary this person draws on
+    public List<Question> withCharacteristic(String questionPattern, QuestionSuffixIndex index) {
+        IntSet ids = characteristicIds(questionPattern, index);
+        if (ids.isEmpty()) return Collections.emptyList();
+        List<Question> results = new ArrayList<>(ids.size());
+        for (Question characteristic : characteristics)
+            if (ids.contains(characteristic.getId()))
+                results.add(characteristic);
+        return results;
+    }
+
 }
 
 /*
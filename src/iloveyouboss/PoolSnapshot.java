@@ -0,0 +1,273 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+// A pool image that is opened with a memory mapping instead of being rebuilt.
+// Layout: MAGIC, VERSION, profile count, question count; the question catalog
+// as [id][kind][text][choice count][choices...]; name offsets (profile count + 1
+// ints) and the UTF-8 names they point into; then one byte column per catalog
+// question, holding each profile's answer index or UNANSWERED. Strings are
+// [short length][UTF-8 bytes].
+public class PoolSnapshot {
+    static final int MAGIC = 0x494C5053;
+    static final int VERSION = 1;
+    static final int HEADER = 16;
+    private static final byte BOOLEAN = 0;
+    private static final byte PERCENTILE = 1;
+
+    private final Path file;
+    private final ByteBuffer mapped;
+    private final int size;
+    private final List<Question> catalog = new ArrayList<>();
+    private final Map<Integer, Question> questions = new HashMap<>();
+    // position of each question's column in mapped
+    private final Map<Integer, Integer> columns = new HashMap<>();
+    private final int nameOffsets;
+    private final int names;
+    private final AtomicReferenceArray<Profile> built;
+    private final List<Profile> profiles;
+
+    // writes a temporary file next to file and renames it over file, so a reader
+    // (or a crash) never sees a half-written snapshot
+    public static void write(ProfilePool pool, Path file) throws IOException {
+        ColumnarProfilePool columnar = pool.columnar();
+        int size = columnar.size();
+        List<Integer> ids = new ArrayList<>(columnar.columns().keySet());
+        Collections.sort(ids);
+
+        ByteArrayOutputStream catalogBytes = new ByteArrayOutputStream();
+        DataOutputStream catalog = new DataOutputStream(catalogBytes);
+        for (int id : ids) {
+            Question question = columnar.question(id);
+            catalog.writeInt(id);
+            catalog.writeByte(kindOf(question));
+            writeString(catalog, question.getText());
+            catalog.writeShort(question.getAnswerChoiceCount());
+            for (int c = 0; c < question.getAnswerChoiceCount(); c++)
+                writeString(catalog, question.getAnswerChoice(c));
+        }
+        ByteArrayOutputStream nameBytes = new ByteArrayOutputStream();
+        int[] offsets = new int[size + 1];
+        for (int row = 0; row < size; row++) {
+            byte[] name = columnar.profile(row).getName().getBytes(StandardCharsets.UTF_8);
+            nameBytes.write(name, 0, name.length);
+            offsets[row + 1] = nameBytes.size();
+        }
+        long length = HEADER + catalogBytes.size() + 4L * (size + 1) + nameBytes.size() + (long) ids.size() * size;
+        if (length > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("pool too large for one snapshot mapping");
+
+        Path directory = file.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(size);
+                out.writeInt(ids.size());
+                catalogBytes.writeTo(out);
+                for (int offset : offsets)
+                    out.writeInt(offset);
+                nameBytes.writeTo(out);
+                for (int id : ids)
+                    out.write(columnar.columns().get(id));
+                out.flush();
+                channel.force(true);
+            }
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static byte kindOf(Question question) {
+        if (question.getClass() == BooleanQuestion.class) return BOOLEAN;
+        if (question.getClass() == PercentileQuestion.class) return PERCENTILE;
+        throw new IllegalArgumentException("cannot snapshot " + question.getClass().getSimpleName());
+    }
+
+    private static void writeString(DataOutputStream out, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) throw new IllegalArgumentException("string too long to encode");
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    public static PoolSnapshot open(Path file) throws IOException {
+        return new PoolSnapshot(file);
+    }
+
+    private PoolSnapshot(Path file) throws IOException {
+        this.file = file;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) throw new IOException("snapshot too large to map: " + file);
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            if (mapped.getInt() != MAGIC)
+                throw new IOException("not a pool snapshot: " + file);
+            int version = mapped.getInt();
+            if (version != VERSION)
+                throw new IOException("unsupported pool snapshot version " + version);
+            size = mapped.getInt();
+            int questionCount = mapped.getInt();
+            for (int q = 0; q < questionCount; q++)
+                catalog.add(readQuestion());
+            nameOffsets = mapped.position();
+            names = nameOffsets + (size + 1) * 4;
+            int column = names + mapped.getInt(nameOffsets + size * 4);
+            for (Question question : catalog) {
+                questions.put(question.getId(), question);
+                columns.put(question.getId(), column);
+                column += size;
+            }
+            if (column > mapped.limit())
+                throw new IOException("truncated pool snapshot: " + file);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("truncated pool snapshot: " + file, e);
+        }
+        built = new AtomicReferenceArray<>(size);
+        profiles = new LazyProfiles();
+    }
+
+    private Question readQuestion() throws IOException {
+        int id = mapped.getInt();
+        byte kind = mapped.get();
+        String text = readString();
+        String[] choices = new String[mapped.getShort() & 0xFFFF];
+        for (int c = 0; c < choices.length; c++)
+            choices[c] = readString();
+        switch (kind) {
+            case BOOLEAN: return new BooleanQuestion(id, text);
+            case PERCENTILE: return new PercentileQuestion(id, text, choices);
+            default: throw new IOException("unknown question kind " + kind + " in " + file);
+        }
+    }
+
+    private String readString() {
+        byte[] bytes = new byte[mapped.getShort() & 0xFFFF];
+        mapped.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // builds each Profile the first time it is asked for, then keeps returning that one
+    private class LazyProfiles extends AbstractList<Profile> implements RandomAccess {
+        @Override
+        public Profile get(int row) {
+            if (row < 0 || row >= size) throw new IndexOutOfBoundsException("row " + row);
+            Profile profile = built.get(row);
+            if (profile == null) {
+                built.compareAndSet(row, null, build(row));
+                profile = built.get(row);
+            }
+            return profile;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    private Profile build(int row) {
+        int from = mapped.getInt(nameOffsets + row * 4);
+        byte[] name = new byte[mapped.getInt(nameOffsets + (row + 1) * 4) - from];
+        for (int i = 0; i < name.length; i++)
+            name[i] = mapped.get(names + from + i);
+        Profile profile = new Profile(new String(name, StandardCharsets.UTF_8));
+        for (Question question : catalog) {
+            byte choice = mapped.get(columns.get(question.getId()) + row);
+            if (choice != ColumnarProfilePool.UNANSWERED)
+                profile.add(new Answer(question, choice));
+        }
+        return profile;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public List<Question> questions() {
+        return Collections.unmodifiableList(catalog);
+    }
+
+    public Question question(int id) {
+        return questions.get(id);
+    }
+
+    // lazy: only the profiles actually read are ever built. Read-only: score() reads the
+    // mapped columns, so answers added to these profiles would not be seen there
+    public List<Profile> profiles() {
+        return profiles;
+    }
+
+    public Profile profile(int row) {
+        return profiles.get(row);
+    }
+
+    public MatchResults score(Criteria criteria) {
+        return score(criteria.compile());
+    }
+
+    // same column-at-a-time scan as ColumnarProfilePool, reading the mapped columns in place
+    public MatchResults score(CompiledCriteria criteria) {
+        long[] scores = new long[size];
+        boolean[] killed = new boolean[size];
+        boolean[] anyMatches = new boolean[size];
+        if (criteria.alwaysMatches())
+            Arrays.fill(anyMatches, true);
+
+        for (int i = 0; i < criteria.size(); i++) {
+            Integer column = columns.get(criteria.questionId(i));
+            if (column == null) {
+                if (criteria.isMustMatch(i))
+                    Arrays.fill(killed, true);
+                continue;
+            }
+            int weight = criteria.weight(i);
+            boolean mustMatch = criteria.isMustMatch(i);
+            for (int row = 0; row < size; row++) {
+                if (killed[row])
+                    continue;
+                if (criteria.test(i, mapped.get(column + row))) {
+                    scores[row] += weight;
+                    anyMatches[row] = true;
+                } else if (mustMatch)
+                    killed[row] = true;
+            }
+        }
+
+        boolean[] matches = new boolean[size];
+        for (int row = 0; row < size; row++)
+            matches[row] = anyMatches[row] && !killed[row];
+        return new MatchResults(profiles, scores, matches);
+    }
+
+    public List<Profile> topK(Criteria criteria, int k) {
+        return score(criteria).topK(k);
+    }
+
+    // builds a fresh copy of every profile, for when the pool has to accept changes
+    // again; the snapshot's own profiles stay in step with the mapped columns
+    public ProfilePool toPool() {
+        ProfilePool pool = new ProfilePool();
+        for (int row = 0; row < size; row++)
+            pool.add(build(row));
+        return pool;
+    }
+}
@@ -9,16 +9,23 @@
 package iloveyouboss;
 
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.function.*;
 import java.util.stream.*;
 
 public class Profile {
+    // evaluate() returns a score >= 0 for a matching profile, otherwise NO_MATCH
+    public static final long NO_MATCH = -1;
+    static final long PRUNED = -2;
+    static final long NO_THRESHOLD = Long.MIN_VALUE;
 
-    private Map<String, Answer> answers = new HashMap<>();
+    // replaced rather than modified, so readers never need a lock
+    private volatile AnswerTable answers = AnswerTable.EMPTY;
     // ...
 
-    private int score;
+    private volatile long score;
     private String name;
+    private final CopyOnWriteArrayList<ProfileListener> listeners = new CopyOnWriteArrayList<>();
 
     public Profile(String name) {
         this.name = name;
@@ -29,41 +36,97 @@ public class Profile {
     }
 
     public void add(Answer answer) {
-        answers.put(answer.getQuestionText(), answer);
+        // listeners hear about one profile's changes in the order they were made
+        synchronized (this) {
+            Answer previous = answers.get(answer.getQuestion().getId());
+            answers = answers.with(answer);
+            for (ProfileListener listener : listeners)
+                listener.answerChanged(this, previous, answer);
+        }
+    }
+
+    // a listener already registered is not added again, so it hears each change once
+    public void addListener(ProfileListener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    public void removeListener(ProfileListener listener) {
+        listeners.remove(listener);
     }
 
     public boolean matches(Criteria criteria) {
-        score = 0;
-
-        boolean kill = false;
-        boolean anyMatches = false;
-        for (Criterion criterion : criteria) {
-            Answer answer = answers.get(
-                    criterion.getAnswer().getQuestionText());
-            boolean match =
-                    criterion.getWeight() == Weight.DontCare ||
-                            answer.match(criterion.getAnswer());
-            if (!match && criterion.getWeight() == Weight.MustMatch) {
-                kill = true;
+        return matches(criteria.compile());
+    }
+
+    public boolean matches(CompiledCriteria criteria) {
+        long result = evaluate(criteria, NO_THRESHOLD, MatchMetrics.global().evaluations());
+        score = Math.max(result, 0);
+        return result != NO_MATCH;
+    }
+
+    public long evaluate(Criteria criteria) {
+        return evaluate(criteria.compile());
+    }
+
+    public long evaluate(CompiledCriteria criteria) {
+        return evaluate(criteria, NO_THRESHOLD, null);
+    }
+
+    // returns PRUNED once the profile can no longer score above threshold
+    long evaluate(CompiledCriteria criteria, long threshold, PruningStats stats) {
+        long score = 0;
+
+        boolean anyMatches = criteria.alwaysMatches();
+        int size = criteria.size();
+        for (int i = 0; i < size; i++) {
+            if (criteria.test(i, answerIndex(criteria.questionId(i)))) {
+                score += criteria.weight(i);
+                anyMatches = true;
+            } else if (criteria.isMustMatch(i)) {
+                if (stats != null) stats.record(i + 1, size - i - 1, true, false);
+                return NO_MATCH;
             }
-            if (match) {
-                score += criterion.getWeight().getValue();
+            if (i + 1 < size && score + criteria.remainingWeight(i + 1) <= threshold) {
+                if (stats != null) stats.record(i + 1, size - i - 1, false, true);
+                return PRUNED;
             }
-            anyMatches |= match;
-            // ...
         }
-        if (kill)
-            return false;
-        return anyMatches;
+        if (stats != null) stats.record(size, 0, false, false);
+        return anyMatches ? score : NO_MATCH;
+    }
+
+    private int answerIndex(int questionId) {
+        Answer answer = getAnswer(questionId);
+        return answer == null ? ColumnarProfilePool.UNANSWERED : answer.getIndex();
+    }
+
+    public Answer getAnswer(int questionId) {
+        return answers.get(questionId);
     }
 
-    public int score() {
+    public long score() {
         return score;
     }
 
+    // in ascending question id order
+    public Collection<Answer> getAnswers() {
+        return Collections.unmodifiableList(Arrays.asList(answers.answers));
+    }
+
+    // lazy; looks up the one answer an indexable query can match instead of scanning
+    public Stream<Answer> answers(AnswerQuery query) {
+        if (!query.isIndexable()) return answers().filter(query);
+        Answer answer = getAnswer(query.questionId());
+        return answer != null && query.test(answer) ? Stream.of(answer) : Stream.empty();
+    }
+
+    public Stream<Answer> answers() {
+        return Arrays.stream(answers.answers);
+    }
+
     public List<Answer> classicFind(Predicate<Answer> pred) {
         List<Answer> results = new ArrayList<Answer>();
-        for (Answer answer : answers.values())
+        for (Answer answer : answers.answers)
             if (pred.test(answer))
                 results.add(answer);
         return results;
@@ -75,8 +138,44 @@ public class Profile {
     }
 
     public List<Answer> find(Predicate<Answer> pred) {
-        return answers.values().stream()
-                .filter(pred)
-                .collect(Collectors.toList());
+        Stream<Answer> found = pred instanceof AnswerQuery ? answers((AnswerQuery) pred) : answers().filter(pred);
+        return found.collect(Collectors.toList());
+    }
+
+    // answers sorted by question id; lookups binary search the ids alone
+    private static final class AnswerTable {
+        static final AnswerTable EMPTY = new AnswerTable(new int[0], new Answer[0]);
+
+        final int[] ids;
+        final Answer[] answers;
+
+        AnswerTable(int[] ids, Answer[] answers) {
+            this.ids = ids;
+            this.answers = answers;
+        }
+
+        Answer get(int questionId) {
+            int index = Arrays.binarySearch(ids, questionId);
+            return index >= 0 ? answers[index] : null;
+        }
+
+        AnswerTable with(Answer answer) {
+            int index = Arrays.binarySearch(ids, answer.getQuestion().getId());
+            if (index >= 0) {
+                Answer[] updated = answers.clone();
+                updated[index] = answer;
+                return new AnswerTable(ids, updated);
+            }
+            int insert = -index - 1;
+            int[] newIds = new int[ids.length + 1];
+            Answer[] newAnswers = new Answer[answers.length + 1];
+            System.arraycopy(ids, 0, newIds, 0, insert);
+            System.arraycopy(answers, 0, newAnswers, 0, insert);
+            newIds[insert] = answer.getQuestion().getId();
+            newAnswers[insert] = answer;
+            System.arraycopy(ids, insert, newIds, insert + 1, ids.length - insert);
+            System.arraycopy(answers, insert, newAnswers, insert + 1, answers.length - insert);
+            return new AnswerTable(newIds, newAnswers);
+        }
     }
 }
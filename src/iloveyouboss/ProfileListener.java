@@ -0,0 +1,15 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+@FunctionalInterface
+public interface ProfileListener {
+    // previous is null when the profile had no answer to that question
+    void answerChanged(Profile profile, Answer previous, Answer current);
+}
@@ -9,22 +9,266 @@
 package iloveyouboss;
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.stream.*;
+
+import util.*;
 
 public class ProfilePool {
-    private List<Profile> profiles = new ArrayList<Profile>();
+    static final int PARALLEL_THRESHOLD = 4096;
+
+    // Append-only storage. Each add publishes a new immutable Snapshot through a
+    // volatile write; slots below a published size are never written again, so
+    // readers work on whatever snapshot they picked up without locking.
+    private volatile Snapshot profiles = new Snapshot(new Profile[16], 0);
+    private final List<PoolListener> listeners = new CopyOnWriteArrayList<>();
+    private final ProfileListener answerListener = this::answerChanged;
+    private final AtomicLong version = new AtomicLong();
+
+    private static class Snapshot extends AbstractList<Profile> implements RandomAccess {
+        private final Profile[] profiles;
+        private final int size;
+
+        Snapshot(Profile[] profiles, int size) {
+            this.profiles = profiles;
+            this.size = size;
+        }
+
+        @Override
+        public Profile get(int index) {
+            if (index < 0 || index >= size) throw new IndexOutOfBoundsException("index " + index);
+            return profiles[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
 
     public void add(Profile profile) {
-        profiles.add(profile);
+        synchronized (this) {
+            Snapshot current = profiles;
+            Profile[] array = current.profiles;
+            if (current.size == array.length)
+                array = Arrays.copyOf(array, array.length * 2);
+            array[current.size] = profile;
+            profiles = new Snapshot(array, current.size + 1);
+            version.incrementAndGet();
+        }
+        profile.addListener(answerListener);
+        for (PoolListener listener : listeners)
+            listener.profileAdded(profile);
+    }
+
+    private void answerChanged(Profile profile, Answer previous, Answer current) {
+        version.incrementAndGet();
+        for (PoolListener listener : listeners)
+            listener.answerChanged(profile, previous, current);
+    }
+
+    public void addListener(PoolListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(PoolListener listener) {
+        listeners.remove(listener);
+    }
+
+    // changes whenever a profile is added or any pooled profile's answers change
+    public long version() {
+        return version.get();
+    }
+
+    // an immutable view of the pool as of this call
+    public List<Profile> profiles() {
+        return profiles;
     }
 
     public void score(Criteria criteria) {
-        for (Profile profile : profiles)
-            profile.matches(criteria);
+        CompiledCriteria compiled = criteria.compile();
+        MatchMetrics.Sample sample = MatchMetrics.global().start(MatchMetrics.Operation.SCORE, compiled);
+        for (Profile profile : profiles())
+            profile.matches(compiled);
+        sample.stop();
     }
 
+    public MatchResults parallelScore(Criteria criteria) {
+        return parallelScore(criteria, ForkJoinPool.commonPool());
+    }
+
+    public MatchResults parallelScore(Criteria criteria, ForkJoinPool forkJoinPool) {
+        CompiledCriteria compiled = criteria.compile();
+        MatchMetrics metrics = MatchMetrics.global();
+        MatchMetrics.Sample sample = metrics.start(MatchMetrics.Operation.SCORE, compiled);
+        List<Profile> snapshot = profiles();
+        long[] scores = new long[snapshot.size()];
+        boolean[] matches = new boolean[snapshot.size()];
+        forkJoinPool.invoke(new ScoreTask(snapshot, compiled, metrics.evaluations(), scores, matches, 0, snapshot.size()));
+        sample.stop();
+        return new MatchResults(snapshot, scores, matches);
+    }
+
+    // the k best matching profiles, best first; profiles that do not match are left out
+    public List<Profile> topK(Criteria criteria, int k) {
+        return topK(criteria, k, null);
+    }
+
+    public List<Profile> topK(Criteria criteria, int k, PruningStats stats) {
+        List<Profile> snapshot = profiles();
+        return rows(snapshot, topKHeap(snapshot, criteria, k, stats));
+    }
+
+    // topK with the score each profile was ranked by
+    public List<ScoredProfile> scoredTopK(Criteria criteria, int k) {
+        List<Profile> snapshot = profiles();
+        BoundedScoreHeap heap = topKHeap(snapshot, criteria, k, null);
+        long[] scores = new long[heap.size()];
+        int[] rows = heap.ranked(scores);
+        List<ScoredProfile> top = new ArrayList<>(rows.length);
+        for (int rank = 0; rank < rows.length; rank++)
+            top.add(new ScoredProfile(snapshot.get(rows[rank]), scores[rank]));
+        return top;
+    }
+
+    private BoundedScoreHeap topKHeap(List<Profile> snapshot, Criteria criteria, int k, PruningStats stats) {
+        CompiledCriteria compiled = criteria.compile();
+        MatchMetrics metrics = MatchMetrics.global();
+        MatchMetrics.Sample sample = metrics.start(MatchMetrics.Operation.TOP_K, compiled);
+        if (stats == null) stats = metrics.evaluations();
+        BoundedScoreHeap heap = new BoundedScoreHeap(k);
+        for (int row = 0; row < snapshot.size(); row++)
+            offer(heap, snapshot.get(row), row, compiled, stats);
+        sample.stop();
+        return heap;
+    }
+
+    public List<Profile> parallelTopK(Criteria criteria, int k) {
+        return parallelTopK(criteria, k, null);
+    }
+
+    public List<Profile> parallelTopK(Criteria criteria, int k, PruningStats stats) {
+        return parallelTopK(criteria, k, stats, ForkJoinPool.commonPool());
+    }
+
+    public List<Profile> parallelTopK(Criteria criteria, int k, PruningStats stats, ForkJoinPool forkJoinPool) {
+        CompiledCriteria compiled = criteria.compile();
+        MatchMetrics metrics = MatchMetrics.global();
+        MatchMetrics.Sample sample = metrics.start(MatchMetrics.Operation.TOP_K, compiled);
+        if (stats == null) stats = metrics.evaluations();
+        List<Profile> snapshot = profiles();
+        BoundedScoreHeap heap = forkJoinPool.invoke(
+                new TopKTask(snapshot, compiled, k, stats, 0, snapshot.size()));
+        sample.stop();
+        return rows(snapshot, heap);
+    }
+
+    private static void offer(BoundedScoreHeap heap, Profile profile, int row,
+                              CompiledCriteria criteria, PruningStats stats) {
+        long threshold = heap.size() > 0 && heap.isFull() ? heap.minScore() : Profile.NO_THRESHOLD;
+        long score = profile.evaluate(criteria, threshold, stats);
+        if (score >= 0)
+            heap.offer(score, row);
+    }
+
+    private static List<Profile> rows(List<Profile> profiles, BoundedScoreHeap heap) {
+        List<Profile> top = new ArrayList<>(heap.size());
+        for (int row : heap.ranked())
+            top.add(profiles.get(row));
+        return top;
+    }
+
+    // lazy over the current snapshot; use AnswerIndex.find to run the same query repeatedly
+    public Stream<Answer> find(AnswerQuery query) {
+        return profiles().stream().flatMap(profile -> profile.answers(query));
+    }
+
+    public ColumnarProfilePool columnar() {
+        return new ColumnarProfilePool(profiles());
+    }
+
+    // Sorted by each profile's last score(Criteria) result; the pool itself keeps insertion
+    // order. Every profile is included, those that did not match with score 0; leaving
+    // them out gives the same list as MatchResults.ranked().
     public List<Profile> ranked() {
-        Collections.sort(profiles,
-                (p1, p2) -> ((Integer) p2.score()).compareTo(p1.score()));
-        return profiles;
+        MatchMetrics.Sample sample = MatchMetrics.global().start(MatchMetrics.Operation.RANK);
+        List<Profile> ranked = new ArrayList<>(profiles());
+        ranked.sort((p1, p2) -> Long.compare(p2.score(), p1.score()));
+        sample.stop();
+        return ranked;
+    }
+
+    // each task writes only its own [from, to) slice of the result arrays
+    private static class ScoreTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final List<Profile> profiles;
+        private final CompiledCriteria criteria;
+        private final PruningStats stats;
+        private final long[] scores;
+        private final boolean[] matches;
+        private final int from;
+        private final int to;
+
+        ScoreTask(List<Profile> profiles, CompiledCriteria criteria, PruningStats stats,
+                  long[] scores, boolean[] matches, int from, int to) {
+            this.profiles = profiles;
+            this.criteria = criteria;
+            this.stats = stats;
+            this.scores = scores;
+            this.matches = matches;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                for (int row = from; row < to; row++) {
+                    long score = profiles.get(row).evaluate(criteria, Profile.NO_THRESHOLD, stats);
+                    scores[row] = Math.max(score, 0);
+                    matches[row] = score != Profile.NO_MATCH;
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ScoreTask(profiles, criteria, stats, scores, matches, from, middle),
+                    new ScoreTask(profiles, criteria, stats, scores, matches, middle, to));
+        }
+    }
+
+    private static class TopKTask extends RecursiveTask<BoundedScoreHeap> {
+        private static final long serialVersionUID = 1L;
+        private final List<Profile> profiles;
+        private final CompiledCriteria criteria;
+        private final int k;
+        private final PruningStats stats;
+        private final int from;
+        private final int to;
+
+        TopKTask(List<Profile> profiles, CompiledCriteria criteria, int k, PruningStats stats, int from, int to) {
+            this.profiles = profiles;
+            this.criteria = criteria;
+            this.k = k;
+            this.stats = stats;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected BoundedScoreHeap compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                BoundedScoreHeap heap = new BoundedScoreHeap(k);
+                for (int row = from; row < to; row++)
+                    offer(heap, profiles.get(row), row, criteria, stats);
+                return heap;
+            }
+            int middle = (from + to) >>> 1;
+            TopKTask right = new TopKTask(profiles, criteria, k, stats, middle, to);
+            right.fork();
+            BoundedScoreHeap heap = new TopKTask(profiles, criteria, k, stats, from, middle).compute();
+            heap.merge(right.join());
+            return heap;
+        }
     }
 }
@@ -0,0 +1,143 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+
+import static iloveyouboss.ProfileWriter.*;
+
+public class ProfileReader {
+    private final Path file;
+    private final IntFunction<Question> questions;
+
+    public ProfileReader(Path file, IntFunction<Question> questions) {
+        this.file = file;
+        this.questions = questions;
+    }
+
+    // streams every profile to the sink, holding one block in memory at a time
+    public void read(Consumer<Profile> sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long position = checkHeader(channel);
+            ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER);
+            ByteBuffer block = ByteBuffer.allocateDirect(BLOCK_SIZE);
+            while (position < channel.size()) {
+                header.clear();
+                readFully(channel, header, position);
+                int length = header.getInt(0);
+                if (block.capacity() < length)
+                    block = ByteBuffer.allocateDirect(length);
+                block.clear().limit(length);
+                readFully(channel, block, position + BLOCK_HEADER);
+                decode(block, header.getInt(4), sink);
+                position += BLOCK_HEADER + length;
+            }
+        }
+    }
+
+    public void readInto(ProfilePool pool) throws IOException {
+        read(pool::add);
+    }
+
+    // decodes contiguous runs of blocks on separate threads; profiles reach the pool in file order
+    public void readInto(ProfilePool pool, int threads) throws IOException {
+        List<long[]> blocks = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long position = checkHeader(channel);
+            ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER);
+            while (position < channel.size()) {
+                header.clear();
+                readFully(channel, header, position);
+                blocks.add(new long[]{position, header.getInt(0), header.getInt(4)});
+                position += BLOCK_HEADER + header.getInt(0);
+            }
+
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<List<Profile>>> segments = new ArrayList<>();
+                int perSegment = (blocks.size() + threads - 1) / Math.max(1, threads);
+                for (int from = 0; from < blocks.size(); from += perSegment) {
+                    List<long[]> segment = blocks.subList(from, Math.min(blocks.size(), from + perSegment));
+                    segments.add(executor.submit(() -> decodeSegment(channel, segment)));
+                }
+                for (Future<List<Profile>> segment : segments)
+                    segment.get().forEach(pool::add);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+                throw new IOException(e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    private List<Profile> decodeSegment(FileChannel channel, List<long[]> segment) throws IOException {
+        List<Profile> profiles = new ArrayList<>();
+        ByteBuffer block = ByteBuffer.allocateDirect(BLOCK_SIZE);
+        for (long[] entry : segment) {
+            int length = (int) entry[1];
+            if (block.capacity() < length)
+                block = ByteBuffer.allocateDirect(length);
+            block.clear().limit(length);
+            readFully(channel, block, entry[0] + BLOCK_HEADER);
+            decode(block, (int) entry[2], profiles::add);
+        }
+        return profiles;
+    }
+
+    private void decode(ByteBuffer block, int records, Consumer<Profile> sink) throws IOException {
+        block.flip();
+        byte[] name = new byte[256];
+        for (int r = 0; r < records; r++) {
+            int nameLength = block.getShort() & 0xFFFF;
+            if (name.length < nameLength)
+                name = new byte[nameLength];
+            block.get(name, 0, nameLength);
+            Profile profile = new Profile(new String(name, 0, nameLength, StandardCharsets.UTF_8));
+            int answers = block.getShort() & 0xFFFF;
+            for (int a = 0; a < answers; a++) {
+                int questionId = block.getInt();
+                Question question = questions.apply(questionId);
+                if (question == null)
+                    throw new IOException("unknown question id " + questionId + " in " + file);
+                profile.add(new Answer(question, block.get()));
+            }
+            sink.accept(profile);
+        }
+    }
+
+    private long checkHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER);
+        readFully(channel, header, 0);
+        if (header.getInt(0) != MAGIC)
+            throw new IOException("not a profile file: " + file);
+        if (header.getInt(4) != VERSION)
+            throw new IOException("unsupported profile file version " + header.getInt(4));
+        return FILE_HEADER;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int read = 0;
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position + read);
+            if (n < 0) throw new EOFException("truncated profile file " + position);
+            read += n;
+        }
+    }
+}
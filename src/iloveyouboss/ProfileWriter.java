@@ -0,0 +1,95 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+// File layout: MAGIC, VERSION, then blocks of [byte length][record count][records].
+// A record is [name length][UTF-8 name][answer count][(question id, choice index)...].
+// Blocks only hold whole records so a reader can decode any block on its own.
+public class ProfileWriter implements Closeable {
+    static final int MAGIC = 0x494C5950;
+    static final int VERSION = 1;
+    static final int FILE_HEADER = 8;
+    static final int BLOCK_HEADER = 8;
+    static final int BLOCK_SIZE = 64 * 1024;
+    static final int ANSWER_SIZE = 5;
+
+    private final FileChannel channel;
+    private ByteBuffer block = ByteBuffer.allocateDirect(BLOCK_SIZE);
+    private int records = 0;
+
+    public ProfileWriter(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        writeFully(header);
+        startBlock();
+    }
+
+    public void write(Profile profile) throws IOException {
+        byte[] name = profile.getName().getBytes(StandardCharsets.UTF_8);
+        Collection<Answer> answers = profile.getAnswers();
+        if (name.length > 0xFFFF || answers.size() > 0xFFFF)
+            throw new IllegalArgumentException("profile too large to encode: " + profile);
+        for (Answer answer : answers)
+            if (answer.getIndex() > Byte.MAX_VALUE)
+                throw new IllegalArgumentException("too many answer choices for question " +
+                        answer.getQuestion().getId());
+
+        int length = 2 + name.length + 2 + answers.size() * ANSWER_SIZE;
+        if (block.remaining() < length) {
+            flushBlock();
+            // only a record that cannot fit an empty block gets a buffer of its own
+            if (BLOCK_HEADER + length > BLOCK_SIZE)
+                block = ByteBuffer.allocateDirect(BLOCK_HEADER + length);
+            else if (block.capacity() != BLOCK_SIZE)
+                block = ByteBuffer.allocateDirect(BLOCK_SIZE);
+            startBlock();
+        }
+        block.putShort((short) name.length).put(name).putShort((short) answers.size());
+        for (Answer answer : answers)
+            block.putInt(answer.getQuestion().getId()).put((byte) answer.getIndex());
+        records++;
+    }
+
+    private void startBlock() {
+        block.clear();
+        block.position(BLOCK_HEADER);
+        records = 0;
+    }
+
+    private void flushBlock() throws IOException {
+        if (records == 0) return;
+        block.putInt(0, block.position() - BLOCK_HEADER);
+        block.putInt(4, records);
+        block.flip();
+        writeFully(block);
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBlock();
+        } finally {
+            channel.close();
+        }
+    }
+}
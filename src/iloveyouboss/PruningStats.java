@@ -0,0 +1,54 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import java.util.concurrent.atomic.*;
+
+public class PruningStats {
+    private final LongAdder profilesEvaluated = new LongAdder();
+    private final LongAdder rejectedByMustMatch = new LongAdder();
+    private final LongAdder prunedByThreshold = new LongAdder();
+    private final LongAdder criteriaChecked = new LongAdder();
+    private final LongAdder criteriaSkipped = new LongAdder();
+
+    void record(int checked, int skipped, boolean rejected, boolean pruned) {
+        profilesEvaluated.increment();
+        criteriaChecked.add(checked);
+        if (skipped > 0) criteriaSkipped.add(skipped);
+        if (rejected) rejectedByMustMatch.increment();
+        if (pruned) prunedByThreshold.increment();
+    }
+
+    public long profilesEvaluated() {
+        return profilesEvaluated.sum();
+    }
+
+    public long rejectedByMustMatch() {
+        return rejectedByMustMatch.sum();
+    }
+
+    public long prunedByThreshold() {
+        return prunedByThreshold.sum();
+    }
+
+    public long criteriaChecked() {
+        return criteriaChecked.sum();
+    }
+
+    public long criteriaSkipped() {
+        return criteriaSkipped.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("evaluated %d, rejected %d, pruned %d, criteria checked %d, skipped %d",
+                profilesEvaluated(), rejectedByMustMatch(), prunedByThreshold(),
+                criteriaChecked(), criteriaSkipped());
+    }
+}
@@ -8,15 +8,20 @@
  ***/
 package iloveyouboss;
 
+import java.util.*;
+
 public abstract class Question {
     private String text;
     private String[] answerChoices;
+    private Map<String, Integer> choiceIndexes = new HashMap<>();
     private int id;
 
     public Question(int id, String text, String[] answerChoices) {
         this.id = id;
         this.text = text;
         this.answerChoices = answerChoices;
+        for (int i = 0; i < answerChoices.length; i++)
+            choiceIndexes.putIfAbsent(answerChoices[i], i);
     }
 
     public int getId() {
@@ -31,6 +36,10 @@ public abstract class Question {
         return answerChoices[i];
     }
 
+    public int getAnswerChoiceCount() {
+        return answerChoices.length;
+    }
+
     public boolean match(Answer answer) {
         return false;
     }
@@ -38,9 +47,7 @@ public abstract class Question {
     abstract public boolean match(int expected, int actual);
 
     public int indexOf(String matchingAnswerChoice) {
-        for (int i = 0; i < answerChoices.length; i++)
-            if (answerChoices[i].equals(matchingAnswerChoice))
-                return i;
-        return -1;
+        Integer index = choiceIndexes.get(matchingAnswerChoice);
+        return index == null ? -1 : index;
     }
 }
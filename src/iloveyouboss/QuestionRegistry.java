@@ -0,0 +1,50 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import java.util.*;
+
+import util.*;
+
+// one shared Question instance per id
+public class QuestionRegistry {
+    private final SparseArray<Question> questions = new SparseArray<>();
+    private final List<Question> inOrder = new ArrayList<>();
+
+    public synchronized Question intern(Question question) {
+        Question existing = questions.get(question.getId());
+        if (existing == null) {
+            questions.put(question.getId(), question);
+            inOrder.add(question);
+            return question;
+        }
+        if (!existing.getText().equals(question.getText()) || existing.getClass() != question.getClass())
+            throw new IllegalArgumentException("question id " + question.getId() +
+                    " already registered as \"" + existing.getText() + "\"");
+        return existing;
+    }
+
+    public synchronized Question get(int id) {
+        return questions.get(id);
+    }
+
+    public synchronized int size() {
+        return questions.size();
+    }
+
+    public synchronized List<Question> questions() {
+        return Collections.unmodifiableList(new ArrayList<>(inOrder));
+    }
+
+    public Answer answer(int questionId, String choice) {
+        Question question = get(questionId);
+        if (question == null) throw new IllegalArgumentException("unknown question id " + questionId);
+        return new Answer(question, question.indexOf(choice));
+    }
+}
@@ -0,0 +1,95 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import java.util.*;
+
+import util.*;
+
+// Reversed trie over question texts. endingWith walks the pattern backwards, one
+// node per character, and returns the ids stored at that node; nothing is scanned.
+public class QuestionSuffixIndex {
+    private final Node root = new Node();
+    private final Map<Integer, Question> questions = new HashMap<>();
+
+    private static class Node {
+        private char[] labels = new char[0];
+        private Node[] children = new Node[0];
+        private IntSet ids = IntSet.EMPTY;
+        // only while the index is being built
+        private IntSet.Builder building = new IntSet.Builder();
+
+        Node child(char label) {
+            int at = Arrays.binarySearch(labels, label);
+            return at >= 0 ? children[at] : null;
+        }
+
+        Node childOrAdd(char label) {
+            int at = Arrays.binarySearch(labels, label);
+            if (at >= 0) return children[at];
+            int insertion = -at - 1;
+            char[] newLabels = new char[labels.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, insertion);
+            System.arraycopy(children, 0, newChildren, 0, insertion);
+            newLabels[insertion] = label;
+            newChildren[insertion] = new Node();
+            System.arraycopy(labels, insertion, newLabels, insertion + 1, labels.length - insertion);
+            System.arraycopy(children, insertion, newChildren, insertion + 1, children.length - insertion);
+            labels = newLabels;
+            children = newChildren;
+            return newChildren[insertion];
+        }
+    }
+
+    public QuestionSuffixIndex(Collection<? extends Question> questions) {
+        for (Question question : questions)
+            add(question);
+        freeze();
+    }
+
+    private void add(Question question) {
+        questions.put(question.getId(), question);
+        String text = question.getText();
+        Node node = root;
+        node.building.add(question.getId());
+        for (int i = text.length() - 1; i >= 0; i--) {
+            node = node.childOrAdd(text.charAt(i));
+            node.building.add(question.getId());
+        }
+    }
+
+    private void freeze() {
+        Deque<Node> nodes = new ArrayDeque<>();
+        nodes.push(root);
+        while (!nodes.isEmpty()) {
+            Node node = nodes.pop();
+            node.ids = node.building.build();
+            node.building = null;
+            for (Node child : node.children)
+                nodes.push(child);
+        }
+    }
+
+    // ids of questions whose text ends with pattern; shared, so never copy to protect it
+    public IntSet endingWith(String pattern) {
+        Node node = root;
+        for (int i = pattern.length() - 1; i >= 0 && node != null; i--)
+            node = node.child(pattern.charAt(i));
+        return node == null ? IntSet.EMPTY : node.ids;
+    }
+
+    public Question question(int id) {
+        return questions.get(id);
+    }
+
+    public int size() {
+        return questions.size();
+    }
+}
@@ -0,0 +1,238 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.stream.*;
+
+import util.*;
+
+// Two-sided matching: how well each profile satisfies the other's criteria,
+// combined as a geometric mean (see the notes in Person). Rather than scoring
+// all N^2 pairs, each profile only scores candidates that pass its MustMatch
+// criteria (when those alone narrow things down enough) or that share a
+// MinHash band with it, i.e. that answered many of the same questions the same way.
+public class ReciprocalMatcher {
+    public static final int DEFAULT_BANDS = 16;
+    public static final int DEFAULT_ROWS_PER_BAND = 4;
+    public static final int DEFAULT_MAX_CANDIDATES = 2000;
+    private static final int ROW_BITS = 24;
+    private static final long ROW_MASK = (1L << ROW_BITS) - 1;
+
+    private final List<Profile> profiles;
+    private final CompiledCriteria[] wants;
+    private final AnswerIndex index;
+    private final int rowsPerBand;
+    private final int maxCandidates;
+    // per band, (band hash << ROW_BITS | row) sorted, so each bucket is one run
+    private final long[][] bands;
+    private final long[] bandKeys;
+    private final LongAdder pairsScored = new LongAdder();
+
+    // rows passing a set of MustMatch criteria
+    private static class Block {
+        final BitSet rows;
+        final int cardinality;
+
+        Block(BitSet rows) {
+            this.rows = rows;
+            this.cardinality = rows.cardinality();
+        }
+    }
+
+    public static class Match {
+        private final Profile profile;
+        private final double score;
+
+        Match(Profile profile, double score) {
+            this.profile = profile;
+            this.score = score;
+        }
+
+        public Profile getProfile() {
+            return profile;
+        }
+
+        public double getScore() {
+            return score;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %.4f", profile, score);
+        }
+    }
+
+    public ReciprocalMatcher(List<Profile> profiles, List<Criteria> wants) {
+        this(profiles, wants, DEFAULT_BANDS, DEFAULT_ROWS_PER_BAND, DEFAULT_MAX_CANDIDATES);
+    }
+
+    // wants.get(i) is what profiles.get(i) looks for
+    public ReciprocalMatcher(List<Profile> profiles, List<Criteria> wants,
+                             int bandCount, int rowsPerBand, int maxCandidates) {
+        if (profiles.size() != wants.size())
+            throw new IllegalArgumentException(profiles.size() + " profiles but " + wants.size() + " criteria");
+        if (profiles.size() > ROW_MASK)
+            throw new IllegalArgumentException("too many profiles: " + profiles.size());
+        this.profiles = new ArrayList<>(profiles);
+        this.wants = new CompiledCriteria[wants.size()];
+        for (int i = 0; i < wants.size(); i++)
+            this.wants[i] = wants.get(i).compile();
+        this.rowsPerBand = rowsPerBand;
+        this.maxCandidates = maxCandidates;
+        index = new ColumnarProfilePool(this.profiles).index();
+
+        int n = this.profiles.size();
+        bandKeys = new long[n * bandCount];
+        IntStream.range(0, n).parallel().forEach(row -> signBands(row, bandCount));
+        bands = new long[bandCount][];
+        for (int band = 0; band < bandCount; band++) {
+            long[] bucketed = new long[n];
+            for (int row = 0; row < n; row++)
+                bucketed[row] = bandKeys[row * bandCount + band] << ROW_BITS | row;
+            Arrays.parallelSort(bucketed);
+            bands[band] = bucketed;
+        }
+    }
+
+    private void signBands(int row, int bandCount) {
+        long[] minHashes = new long[bandCount * rowsPerBand];
+        Arrays.fill(minHashes, Long.MAX_VALUE);
+        for (Answer answer : profiles.get(row).getAnswers()) {
+            long token = (long) answer.getQuestion().getId() << 8 | (answer.getIndex() & 0xFF);
+            for (int h = 0; h < minHashes.length; h++)
+                minHashes[h] = Math.min(minHashes[h], mix(token + h * 0x9E3779B97F4A7C15L));
+        }
+        for (int band = 0; band < bandCount; band++) {
+            long key = 0;
+            for (int r = 0; r < rowsPerBand; r++)
+                key = mix(key ^ minHashes[band * rowsPerBand + r]);
+            // one bit short of 64 - ROW_BITS so packed entries stay positive and sort as unsigned
+            bandKeys[row * bandCount + band] = key >>> (ROW_BITS + 1);
+        }
+    }
+
+    // splitmix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public int size() {
+        return profiles.size();
+    }
+
+    // share of wanter's criteria weight that candidate's answers earn; 0 if a MustMatch fails
+    public double satisfaction(int wanter, int candidate) {
+        CompiledCriteria criteria = wants[wanter];
+        long score = profiles.get(candidate).evaluate(criteria);
+        if (score == Profile.NO_MATCH) return 0;
+        long possible = criteria.remainingWeight(0);
+        return possible == 0 ? 1 : (double) score / possible;
+    }
+
+    public double mutualScore(int a, int b) {
+        double first = satisfaction(a, b);
+        return first == 0 ? 0 : Math.sqrt(first * satisfaction(b, a));
+    }
+
+    // best mutual matches for every profile, in the order profiles were given
+    public List<List<Match>> topMatches(int k) {
+        int n = profiles.size();
+        ThreadLocal<int[]> seen = ThreadLocal.withInitial(() -> new int[n]);
+        // blocks are shared by rows with the same MustMatches, and only for this call
+        ConcurrentMap<List<Long>, Block> blocks = new ConcurrentHashMap<>();
+        return IntStream.range(0, n).parallel()
+                .mapToObj(row -> topMatches(row, k, seen.get(), blocks))
+                .collect(Collectors.toList());
+    }
+
+    public List<Match> topMatches(int row, int k) {
+        return topMatches(row, k, new int[profiles.size()], new HashMap<>());
+    }
+
+    // seen[other] == row + 1 marks a candidate already scored for this row
+    private List<Match> topMatches(int row, int k, int[] seen, Map<List<Long>, Block> blocks) {
+        BoundedScoreHeap heap = new BoundedScoreHeap(k);
+        int stamp = row + 1;
+        seen[row] = stamp;
+        Block cached = block(wants[row], blocks);
+        BitSet block = cached == null ? null : cached.rows;
+        if (block != null && cached.cardinality <= maxCandidates) {
+            for (int other = block.nextSetBit(0); other >= 0; other = block.nextSetBit(other + 1))
+                if (seen[other] != stamp) {
+                    seen[other] = stamp;
+                    offer(heap, row, other);
+                }
+        } else {
+            int found = 0;
+            for (int band = 0; band < bands.length && found < maxCandidates; band++) {
+                long[] bucketed = bands[band];
+                long key = bandKeys[row * bands.length + band];
+                for (int at = firstInBucket(bucketed, key); at < bucketed.length
+                        && bucketed[at] >>> ROW_BITS == key && found < maxCandidates; at++) {
+                    int other = (int) (bucketed[at] & ROW_MASK);
+                    if (seen[other] == stamp) continue;
+                    seen[other] = stamp;
+                    if (block != null && !block.get(other)) continue;
+                    found++;
+                    offer(heap, row, other);
+                }
+            }
+        }
+
+        long[] scores = new long[heap.size()];
+        int[] ranked = heap.ranked(scores);
+        List<Match> top = new ArrayList<>(ranked.length);
+        for (int rank = 0; rank < ranked.length; rank++)
+            top.add(new Match(profiles.get(ranked[rank]), Double.longBitsToDouble(scores[rank])));
+        return top;
+    }
+
+    // heap scores are the raw bits of the mutual score, which order the same way as
+    // the values because they are never negative
+    private void offer(BoundedScoreHeap heap, int row, int other) {
+        pairsScored.increment();
+        double first = satisfaction(row, other);
+        if (first == 0) return;
+        // the other side can contribute at most 1, so sqrt(first) bounds the mutual score
+        if (heap.size() > 0 && heap.isFull() && Double.doubleToLongBits(Math.sqrt(first)) < heap.minScore()) return;
+        double score = Math.sqrt(first * satisfaction(other, row));
+        if (score > 0)
+            heap.offer(Double.doubleToLongBits(score), other);
+    }
+
+    private static int firstInBucket(long[] bucketed, long key) {
+        int low = 0;
+        int high = bucketed.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (bucketed[middle] >>> ROW_BITS < key) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    // rows passing every MustMatch of criteria, shared by all criteria with the same MustMatches
+    private Block block(CompiledCriteria criteria, Map<List<Long>, Block> blocks) {
+        if (criteria.mustMatchCount() == 0) return null;
+        List<Long> key = new ArrayList<>(criteria.mustMatchCount());
+        for (int i = 0; i < criteria.mustMatchCount(); i++)
+            key.add((long) criteria.questionId(i) << 32 | criteria.expected(i) & 0xFFFFFFFFL);
+        Collections.sort(key);
+        return blocks.computeIfAbsent(key, k -> new Block(index.candidates(criteria)));
+    }
+
+    public long pairsScored() {
+        return pairsScored.sum();
+    }
+}
@@ -0,0 +1,126 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import java.util.*;
+
+public class SavedSearch {
+    private final IncrementalScorer scorer;
+    private final CompiledCriteria criteria;
+    private final Map<Integer, int[]> criteriaByQuestion = new HashMap<>();
+
+    // per-row running totals; every answer contributes independently, so a
+    // changed answer is applied by removing its old contribution and adding the new one
+    private int[] mustMatchesSatisfied = new int[16];
+    private long[] weightedScore = new long[16];
+    private int[] weightedMatches = new int[16];
+    private final TreeSet<Integer> ranking = new TreeSet<>(this::compareRows);
+    private final BitSet loaded = new BitSet();
+
+    SavedSearch(IncrementalScorer scorer, Criteria criteria) {
+        this.scorer = scorer;
+        this.criteria = criteria.compile();
+        Map<Integer, List<Integer>> byQuestion = new HashMap<>();
+        for (int i = 0; i < this.criteria.size(); i++)
+            byQuestion.computeIfAbsent(this.criteria.questionId(i), id -> new ArrayList<>()).add(i);
+        byQuestion.forEach((id, positions) ->
+                criteriaByQuestion.put(id, positions.stream().mapToInt(Integer::intValue).toArray()));
+    }
+
+    void profileAdded(int row, Profile profile) {
+        if (row >= weightedScore.length) {
+            int capacity = Math.max(row + 1, weightedScore.length * 2);
+            mustMatchesSatisfied = Arrays.copyOf(mustMatchesSatisfied, capacity);
+            weightedScore = Arrays.copyOf(weightedScore, capacity);
+            weightedMatches = Arrays.copyOf(weightedMatches, capacity);
+        }
+        for (Answer answer : profile.getAnswers())
+            apply(row, answer, 1);
+        ranking.add(row);
+        loaded.set(row);
+    }
+
+    void answerChanged(int row, Answer previous, Answer current) {
+        if (!loaded.get(row)) return;
+        if (!affects(previous) && !affects(current)) return;
+        ranking.remove(row);
+        if (previous != null)
+            apply(row, previous, -1);
+        apply(row, current, 1);
+        ranking.add(row);
+    }
+
+    private boolean affects(Answer answer) {
+        return answer != null && criteriaByQuestion.containsKey(answer.getQuestion().getId());
+    }
+
+    private void apply(int row, Answer answer, int sign) {
+        int[] positions = criteriaByQuestion.get(answer.getQuestion().getId());
+        if (positions == null) return;
+        for (int i : positions) {
+            if (!criteria.test(i, answer.getIndex()))
+                continue;
+            if (criteria.isMustMatch(i)) {
+                mustMatchesSatisfied[row] += sign;
+            } else {
+                weightedScore[row] += sign * criteria.weight(i);
+                weightedMatches[row] += sign;
+            }
+        }
+    }
+
+    private boolean rejected(int row) {
+        return mustMatchesSatisfied[row] < criteria.mustMatchCount();
+    }
+
+    private long score(int row) {
+        return rejected(row) ? 0 : weightedScore[row];
+    }
+
+    private int compareRows(int row1, int row2) {
+        int byScore = Long.compare(score(row2), score(row1));
+        return byScore != 0 ? byScore : Integer.compare(row1, row2);
+    }
+
+    public long score(Profile profile) {
+        synchronized (scorer) {
+            return score(scorer.row(profile));
+        }
+    }
+
+    public boolean matches(Profile profile) {
+        synchronized (scorer) {
+            return matches(scorer.row(profile));
+        }
+    }
+
+    private boolean matches(int row) {
+        if (rejected(row)) return false;
+        return criteria.alwaysMatches() || criteria.mustMatchCount() > 0 || weightedMatches[row] > 0;
+    }
+
+    // the k best matching profiles, best first
+    public List<Profile> topK(int k) {
+        synchronized (scorer) {
+            List<Profile> top = new ArrayList<>(Math.min(k, ranking.size()));
+            for (Iterator<Integer> rows = ranking.iterator(); rows.hasNext() && top.size() < k; ) {
+                int row = rows.next();
+                if (matches(row))
+                    top.add(scorer.profile(row));
+            }
+            return top;
+        }
+    }
+
+    public List<Profile> ranked() {
+        synchronized (scorer) {
+            return topK(ranking.size());
+        }
+    }
+}
@@ -8,21 +8,21 @@
  ***/
 package iloveyouboss;
 
-import java.util.*;
-
+// Summarizes scores as they are added; individual scores are not kept.
 public class ScoreCollection {
-    private List<Scoreable> scores = new ArrayList<>();
+    private final ScoreStatistics statistics = new ScoreStatistics();
 
     public void add(Scoreable scoreable) {
-        if (scoreable == null) throw new IllegalArgumentException();
-        scores.add(scoreable);
+        statistics.add(scoreable);
     }
 
-    public int arithmeticMean() {
-        if (scores.size() == 0) return 0;
-        // ...
+    public double arithmeticMean() {
+        return statistics.arithmeticMean();
+    }
 
-        int total = scores.stream().mapToInt(Scoreable::getScore).sum();
-        return total / scores.size();
+    public ScoreStatistics statistics() {
+        ScoreStatistics copy = new ScoreStatistics();
+        copy.merge(statistics);
+        return copy;
     }
 }
@@ -0,0 +1,125 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import java.util.*;
+import java.util.stream.*;
+
+import util.*;
+
+// Running statistics over a stream of scores in constant memory. Partial
+// results from separate workers can be combined with merge(). Count, sum,
+// mean, variance, min and max cover every score. Any negative score makes the
+// geometric mean NaN, and negative scores are left out of the quantiles.
+public class ScoreStatistics {
+    private long count = 0;
+    private long sum = 0;
+    private double mean = 0;
+    private double squaredDeviations = 0;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+    private double logSum = 0;
+    private long zeros = 0;
+    private long negatives = 0;
+    private final LogHistogram histogram = new LogHistogram();
+
+    public static Collector<Scoreable, ?, ScoreStatistics> collector() {
+        return Collector.of(ScoreStatistics::new, ScoreStatistics::add,
+                (left, right) -> {
+                    left.merge(right);
+                    return left;
+                });
+    }
+
+    public void add(Scoreable scoreable) {
+        if (scoreable == null) throw new IllegalArgumentException();
+        add(scoreable.getScore());
+    }
+
+    public void add(long score) {
+        count++;
+        sum = Math.addExact(sum, score);
+        double delta = score - mean;
+        mean += delta / count;
+        squaredDeviations += delta * (score - mean);
+        min = Math.min(min, score);
+        max = Math.max(max, score);
+        if (score < 0) {
+            negatives++;
+            return;
+        }
+        if (score == 0)
+            zeros++;
+        else
+            logSum += Math.log(score);
+        histogram.record(score);
+    }
+
+    public void merge(ScoreStatistics other) {
+        if (other.count == 0) return;
+        long total = count + other.count;
+        double delta = other.mean - mean;
+        squaredDeviations += other.squaredDeviations + delta * delta * count * other.count / total;
+        mean += delta * other.count / total;
+        count = total;
+        sum = Math.addExact(sum, other.sum);
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        logSum += other.logSum;
+        zeros += other.zeros;
+        negatives += other.negatives;
+        histogram.merge(other.histogram);
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public long negatives() {
+        return negatives;
+    }
+
+    public long sum() {
+        return sum;
+    }
+
+    public double arithmeticMean() {
+        return count == 0 ? 0 : mean;
+    }
+
+    public double geometricMean() {
+        if (count == 0) return 0;
+        if (negatives > 0) return Double.NaN;
+        if (zeros > 0) return 0;
+        return Math.exp(logSum / count);
+    }
+
+    public double variance() {
+        return count == 0 ? 0 : squaredDeviations / count;
+    }
+
+    public double standardDeviation() {
+        return Math.sqrt(variance());
+    }
+
+    public long min() {
+        if (count == 0) throw new NoSuchElementException();
+        return min;
+    }
+
+    public long max() {
+        if (count == 0) throw new NoSuchElementException();
+        return max;
+    }
+
+    // over the non-negative scores only
+    public long quantile(double q) {
+        return histogram.quantile(q);
+    }
+}
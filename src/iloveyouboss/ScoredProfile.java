@@ -0,0 +1,46 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+// A profile and the score it was ranked by; what a Shard sends back for each match.
+public final class ScoredProfile {
+    private final Profile profile;
+    private final long score;
+
+    public ScoredProfile(Profile profile, long score) {
+        if (profile == null) throw new IllegalArgumentException("no profile");
+        this.profile = profile;
+        this.score = score;
+    }
+
+    public Profile profile() {
+        return profile;
+    }
+
+    public long score() {
+        return score;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof ScoredProfile
+                && profile == ((ScoredProfile) other).profile
+                && score == ((ScoredProfile) other).score;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * System.identityHashCode(profile) + Long.hashCode(score);
+    }
+
+    @Override
+    public String toString() {
+        return profile + " " + score;
+    }
+}
@@ -0,0 +1,22 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import java.util.*;
+
+// One partition of a ShardedProfilePool. LocalShard keeps its profiles in this
+// process; a shard behind a socket only needs to answer the same three calls.
+public interface Shard {
+    void add(Profile profile);
+
+    int size();
+
+    // matching profiles with their scores, best first, at most k of them
+    List<ScoredProfile> topK(Criteria criteria, int k);
+}
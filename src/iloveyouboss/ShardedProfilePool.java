@@ -0,0 +1,135 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+// Hash-partitions profiles by name across shards. A query is scattered to every
+// shard and the per-shard top-K lists are merged into one ranking; ties go to
+// the lower shard, then to the shard's own order.
+public class ShardedProfilePool {
+    private final List<Shard> shards;
+    private final Executor executor;
+    private final AtomicLongArray lastNanos;
+    private final AtomicLongArray totalNanos;
+    private final AtomicLong queries = new AtomicLong();
+
+    public ShardedProfilePool(int shardCount) {
+        this(localShards(shardCount), ForkJoinPool.commonPool());
+    }
+
+    public ShardedProfilePool(List<? extends Shard> shards, Executor executor) {
+        if (shards.isEmpty()) throw new IllegalArgumentException("no shards");
+        this.shards = new ArrayList<>(shards);
+        this.executor = executor;
+        lastNanos = new AtomicLongArray(shards.size());
+        totalNanos = new AtomicLongArray(shards.size());
+    }
+
+    private static List<Shard> localShards(int count) {
+        List<Shard> shards = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            shards.add(new LocalShard());
+        return shards;
+    }
+
+    public int shardCount() {
+        return shards.size();
+    }
+
+    public Shard shard(int index) {
+        return shards.get(index);
+    }
+
+    public int shardFor(Profile profile) {
+        return Math.floorMod(profile.getName().hashCode(), shards.size());
+    }
+
+    public void add(Profile profile) {
+        shards.get(shardFor(profile)).add(profile);
+    }
+
+    public int size() {
+        return shards.stream().mapToInt(Shard::size).sum();
+    }
+
+    public List<Profile> topK(Criteria criteria, int k) {
+        List<CompletableFuture<List<ScoredProfile>>> pending = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            int shard = i;
+            pending.add(CompletableFuture.supplyAsync(() -> timedTopK(shard, criteria, k), executor));
+        }
+        List<List<ScoredProfile>> results = new ArrayList<>(pending.size());
+        try {
+            for (CompletableFuture<List<ScoredProfile>> each : pending)
+                results.add(each.join());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw e;
+        }
+        queries.incrementAndGet();
+        return merge(results, k);
+    }
+
+    private List<ScoredProfile> timedTopK(int shard, Criteria criteria, int k) {
+        long start = System.nanoTime();
+        try {
+            return shards.get(shard).topK(criteria, k);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            lastNanos.set(shard, elapsed);
+            totalNanos.addAndGet(shard, elapsed);
+        }
+    }
+
+    static List<Profile> merge(List<List<ScoredProfile>> results, int k) {
+        // each cursor is {shard, rank}
+        PriorityQueue<int[]> cursors = new PriorityQueue<>((a, b) -> {
+            int byScore = Long.compare(results.get(b[0]).get(b[1]).score(), results.get(a[0]).get(a[1]).score());
+            if (byScore != 0) return byScore;
+            return a[0] != b[0] ? Integer.compare(a[0], b[0]) : Integer.compare(a[1], b[1]);
+        });
+        for (int shard = 0; shard < results.size(); shard++)
+            if (!results.get(shard).isEmpty())
+                cursors.add(new int[]{shard, 0});
+
+        List<Profile> top = new ArrayList<>(k);
+        while (top.size() < k && !cursors.isEmpty()) {
+            int[] cursor = cursors.poll();
+            List<ScoredProfile> shard = results.get(cursor[0]);
+            top.add(shard.get(cursor[1]).profile());
+            if (++cursor[1] < shard.size())
+                cursors.add(cursor);
+        }
+        return top;
+    }
+
+    public long queries() {
+        return queries.get();
+    }
+
+    // time each shard took to answer the most recent query
+    public long lastLatency(int shard, TimeUnit unit) {
+        return unit.convert(lastNanos.get(shard), TimeUnit.NANOSECONDS);
+    }
+
+    public long totalLatency(int shard, TimeUnit unit) {
+        return unit.convert(totalNanos.get(shard), TimeUnit.NANOSECONDS);
+    }
+
+    public int slowestShard() {
+        int slowest = 0;
+        for (int shard = 1; shard < shards.size(); shard++)
+            if (lastNanos.get(shard) > lastNanos.get(slowest))
+                slowest = shard;
+        return slowest;
+    }
+}
@@ -0,0 +1,33 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package util;
+
+import java.util.concurrent.atomic.*;
+
+// LogHistogram buckets that many threads can record into without locking.
+// Readers take a snapshot, which is consistent per bucket but not across them.
+public class AtomicLogHistogram {
+    private final AtomicLongArray counts = new AtomicLongArray(LogHistogram.BUCKETS);
+
+    public void record(long value) {
+        counts.incrementAndGet(LogHistogram.bucketOf(value));
+    }
+
+    public LogHistogram snapshot() {
+        LogHistogram histogram = new LogHistogram();
+        for (int bucket = 0; bucket < LogHistogram.BUCKETS; bucket++)
+            histogram.recordBucket(bucket, counts.get(bucket));
+        return histogram;
+    }
+
+    public void reset() {
+        for (int bucket = 0; bucket < LogHistogram.BUCKETS; bucket++)
+            counts.set(bucket, 0);
+    }
+}
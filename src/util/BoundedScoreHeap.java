@@ -0,0 +1,119 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package util;
+
+import java.util.*;
+
+public class BoundedScoreHeap {
+    private final int capacity;
+    private final long[] scores;
+    private final int[] rows;
+    private int size = 0;
+
+    public BoundedScoreHeap(int capacity) {
+        if (capacity < 0) throw new IllegalArgumentException("capacity " + capacity);
+        this.capacity = capacity;
+        this.scores = new long[capacity];
+        this.rows = new int[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    // the score a new entry must beat once the heap is full
+    public long minScore() {
+        if (size == 0) throw new NoSuchElementException();
+        return scores[0];
+    }
+
+    public void offer(long score, int row) {
+        if (size < capacity) {
+            scores[size] = score;
+            rows[size] = row;
+            siftUp(size++);
+        } else if (capacity > 0 && worse(scores[0], rows[0], score, row)) {
+            scores[0] = score;
+            rows[0] = row;
+            siftDown(0);
+        }
+    }
+
+    public void merge(BoundedScoreHeap other) {
+        for (int i = 0; i < other.size; i++)
+            offer(other.scores[i], other.rows[i]);
+    }
+
+    // rows from best to worst: higher score first, lower row on ties
+    public int[] ranked() {
+        return ranked(null);
+    }
+
+    // also fills rankedScores, when given, with each returned row's score
+    public int[] ranked(long[] rankedScores) {
+        BoundedScoreHeap copy = new BoundedScoreHeap(size);
+        System.arraycopy(scores, 0, copy.scores, 0, size);
+        System.arraycopy(rows, 0, copy.rows, 0, size);
+        copy.size = size;
+
+        int[] ranked = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            if (rankedScores != null) rankedScores[i] = copy.scores[0];
+            ranked[i] = copy.pollWorst();
+        }
+        return ranked;
+    }
+
+    private int pollWorst() {
+        int row = rows[0];
+        swap(0, --size);
+        siftDown(0);
+        return row;
+    }
+
+    private static boolean worse(long score, int row, long otherScore, int otherRow) {
+        return score < otherScore || (score == otherScore && row > otherRow);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!worse(scores[i], rows[i], scores[parent], rows[parent])) return;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) return;
+            int worst = left;
+            int right = left + 1;
+            if (right < size && worse(scores[right], rows[right], scores[left], rows[left]))
+                worst = right;
+            if (!worse(scores[worst], rows[worst], scores[i], rows[i])) return;
+            swap(i, worst);
+            i = worst;
+        }
+    }
+
+    private void swap(int i, int j) {
+        long score = scores[i];
+        scores[i] = scores[j];
+        scores[j] = score;
+        int row = rows[i];
+        rows[i] = rows[j];
+        rows[j] = row;
+    }
+}
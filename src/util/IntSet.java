@@ -0,0 +1,113 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package util;
+
+import java.util.*;
+
+// Immutable set of ints kept as a sorted array, so instances can be shared freely.
+public final class IntSet {
+    public static final IntSet EMPTY = new IntSet(new int[0]);
+
+    private final int[] values;
+
+    private IntSet(int[] sortedDistinct) {
+        values = sortedDistinct;
+    }
+
+    public static IntSet of(int... values) {
+        int[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int size = 0;
+        for (int i = 0; i < sorted.length; i++)
+            if (i == 0 || sorted[i] != sorted[i - 1])
+                sorted[size++] = sorted[i];
+        return size == 0 ? EMPTY : new IntSet(Arrays.copyOf(sorted, size));
+    }
+
+    // collects values in any order, duplicates allowed; build() sorts once
+    public static final class Builder {
+        private int[] values = new int[4];
+        private int size = 0;
+
+        public Builder add(int value) {
+            if (size == values.length)
+                values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+            return this;
+        }
+
+        public IntSet build() {
+            return of(Arrays.copyOf(values, size));
+        }
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    public boolean isEmpty() {
+        return values.length == 0;
+    }
+
+    public int get(int index) {
+        return values[index];
+    }
+
+    public boolean contains(int value) {
+        return Arrays.binarySearch(values, value) >= 0;
+    }
+
+    public IntSet with(int value) {
+        int at = Arrays.binarySearch(values, value);
+        if (at >= 0) return this;
+        int insertion = -at - 1;
+        int[] updated = new int[values.length + 1];
+        System.arraycopy(values, 0, updated, 0, insertion);
+        updated[insertion] = value;
+        System.arraycopy(values, insertion, updated, insertion + 1, values.length - insertion);
+        return new IntSet(updated);
+    }
+
+    public IntSet intersect(IntSet other) {
+        if (isEmpty() || other.isEmpty()) return EMPTY;
+        int[] result = new int[Math.min(values.length, other.values.length)];
+        int size = 0;
+        for (int i = 0, j = 0; i < values.length && j < other.values.length; ) {
+            if (values[i] < other.values[j]) i++;
+            else if (values[i] > other.values[j]) j++;
+            else {
+                result[size++] = values[i];
+                i++;
+                j++;
+            }
+        }
+        if (size == values.length) return this;
+        if (size == other.values.length) return other;
+        return size == 0 ? EMPTY : new IntSet(Arrays.copyOf(result, size));
+    }
+
+    public int[] toArray() {
+        return values.clone();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof IntSet && Arrays.equals(values, ((IntSet) other).values);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(values);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(values);
+    }
+}
@@ -0,0 +1,101 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package util;
+
+import java.util.*;
+
+// Log-linear histogram of non-negative values: exact below 2^SUB_BUCKET_BITS, and
+// within a relative error of 2^-SUB_BUCKET_BITS above that. Fixed size, mergeable.
+public class LogHistogram {
+    public static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    public static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count = 0;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    public static int bucketOf(long value) {
+        if (value < 0) throw new IllegalArgumentException("negative value " + value);
+        if (value < SUB_BUCKETS) return (int) value;
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    public static long lowestValueIn(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int shift = (bucket >> SUB_BUCKET_BITS) - 1;
+        return ((long) (bucket & (SUB_BUCKETS - 1)) + SUB_BUCKETS) << shift;
+    }
+
+    public static long highestValueIn(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int shift = (bucket >> SUB_BUCKET_BITS) - 1;
+        return lowestValueIn(bucket) + (1L << shift) - 1;
+    }
+
+    public void record(long value) {
+        record(value, 1);
+    }
+
+    public void record(long value, long times) {
+        counts[bucketOf(value)] += times;
+        count += times;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    // adds raw bucket counts, e.g. from a concurrently updated copy
+    public void recordBucket(int bucket, long times) {
+        if (times == 0) return;
+        counts[bucket] += times;
+        count += times;
+        min = Math.min(min, lowestValueIn(bucket));
+        max = Math.max(max, highestValueIn(bucket));
+    }
+
+    public void merge(LogHistogram other) {
+        for (int bucket = 0; bucket < BUCKETS; bucket++)
+            counts[bucket] += other.counts[bucket];
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public long min() {
+        if (count == 0) throw new NoSuchElementException();
+        return min;
+    }
+
+    public long max() {
+        if (count == 0) throw new NoSuchElementException();
+        return max;
+    }
+
+    // value at quantile q (0..1), reported as the middle of its bucket
+    public long quantile(double q) {
+        if (q < 0 || q > 1) throw new IllegalArgumentException("quantile " + q);
+        if (count == 0) throw new NoSuchElementException();
+        long rank = Math.max(1, (long) Math.ceil(q * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank) {
+                long middle = lowestValueIn(bucket) + (highestValueIn(bucket) - lowestValueIn(bucket)) / 2;
+                return Math.max(min, Math.min(max, middle));
+            }
+        }
+        return max;
+    }
+}
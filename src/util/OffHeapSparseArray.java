@@ -0,0 +1,224 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package util;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+
+public class OffHeapSparseArray implements Closeable {
+    public static final long MISSING = Long.MIN_VALUE;
+    public static final int INITIAL_SIZE = 1024;
+
+    private static final int MAGIC = 0x53504152;
+    private static final int VERSION = 1;
+    private static final int SIZE_OFFSET = 8;
+    private static final int HEADER = 16;
+    // each entry is an int key followed by a long value, kept sorted by key
+    private static final int RECORD = 12;
+    private static final int MAX_CAPACITY = (Integer.MAX_VALUE - HEADER) / RECORD;
+
+    private final FileChannel channel;
+    private ByteBuffer buffer;
+    private int capacity;
+    private int size;
+
+    public OffHeapSparseArray() {
+        this(INITIAL_SIZE);
+    }
+
+    public OffHeapSparseArray(int initialCapacity) {
+        channel = null;
+        capacity = checkCapacity(initialCapacity);
+        buffer = ByteBuffer.allocateDirect(HEADER + capacity * RECORD);
+        writeHeader();
+    }
+
+    private OffHeapSparseArray(FileChannel channel) throws IOException {
+        this.channel = channel;
+        if (channel.size() == 0) {
+            capacity = INITIAL_SIZE;
+            buffer = map(HEADER + (long) capacity * RECORD);
+            writeHeader();
+        } else {
+            buffer = map(channel.size());
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+                throw new IOException("not a sparse array file");
+            capacity = (buffer.capacity() - HEADER) / RECORD;
+            size = buffer.getInt(SIZE_OFFSET);
+        }
+    }
+
+    // creates the file if needed; an existing file is reopened as-is without rebuilding
+    public static OffHeapSparseArray open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            return new OffHeapSparseArray(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static int checkCapacity(int capacity) {
+        if (capacity < 0 || capacity > MAX_CAPACITY)
+            throw new IllegalArgumentException("capacity " + capacity);
+        return capacity;
+    }
+
+    private MappedByteBuffer map(long bytes) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+    }
+
+    private void writeHeader() {
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(SIZE_OFFSET, size);
+    }
+
+    public void put(int key, long value) {
+        if (value == MISSING) return;
+
+        if (size == 0 || key > keyAt(size - 1)) {
+            insertAfter(key, value, size - 1);
+            return;
+        }
+        int index = binarySearch(key);
+        if (index != -1 && keyAt(index) == key)
+            buffer.putLong(offset(index) + 4, value);
+        else
+            insertAfter(key, value, index);
+    }
+
+    public long get(int key) {
+        int index = binarySearch(key);
+        if (index != -1 && keyAt(index) == key)
+            return buffer.getLong(offset(index) + 4);
+        return MISSING;
+    }
+
+    public long remove(int key) {
+        int index = binarySearch(key);
+        if (index == -1 || keyAt(index) != key)
+            return MISSING;
+
+        long removed = buffer.getLong(offset(index) + 4);
+        move(offset(index + 1), offset(index), (size - index - 1) * RECORD);
+        setSize(size - 1);
+        return removed;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void insertAfter(int key, long value, int index) {
+        ensureCapacity(size + 1);
+
+        int newIndex = index + 1;
+        move(offset(newIndex), offset(newIndex + 1), (size - newIndex) * RECORD);
+        buffer.putInt(offset(newIndex), key);
+        buffer.putLong(offset(newIndex) + 4, value);
+        setSize(size + 1);
+    }
+
+    private void setSize(int size) {
+        this.size = size;
+        buffer.putInt(SIZE_OFFSET, size);
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= capacity) return;
+        int newCapacity = checkCapacity((int) Math.min(MAX_CAPACITY, Math.max(needed, 2L * capacity)));
+        long bytes = HEADER + (long) newCapacity * RECORD;
+        if (channel != null) {
+            try {
+                buffer = map(bytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        } else {
+            ByteBuffer grown = ByteBuffer.allocateDirect((int) bytes);
+            ByteBuffer used = buffer.duplicate();
+            used.position(0).limit(offset(size));
+            grown.put(used);
+            buffer = grown;
+        }
+        capacity = newCapacity;
+    }
+
+    // overlapping copy within the buffer, chunked so it is safe in either direction
+    private void move(int from, int to, int length) {
+        if (length == 0) return;
+        byte[] chunk = new byte[Math.min(length, 64 * 1024)];
+        ByteBuffer source = buffer.duplicate();
+        ByteBuffer target = buffer.duplicate();
+        for (int done = 0; done < length; ) {
+            int n = Math.min(chunk.length, length - done);
+            // moving right copies from the end so no unread bytes are overwritten
+            int start = to > from ? length - done - n : done;
+            source.position(from + start);
+            source.get(chunk, 0, n);
+            target.position(to + start);
+            target.put(chunk, 0, n);
+            done += n;
+        }
+    }
+
+    private int keyAt(int index) {
+        return buffer.getInt(offset(index));
+    }
+
+    private static int offset(int index) {
+        return HEADER + index * RECORD;
+    }
+
+    public void checkInvariants() throws InvariantException {
+        if (size < 0 || size > capacity)
+            throw new InvariantException("size " + size + " outside capacity " + capacity);
+        for (int i = 0; i < size; i++) {
+            if (i > 0 && keyAt(i - 1) >= keyAt(i))
+                throw new InvariantException("keys out of order at index " + i);
+            if (buffer.getLong(offset(i) + 4) == MISSING)
+                throw new InvariantException("missing value stored at index " + i);
+        }
+    }
+
+    int binarySearch(int n) {
+        int low = 0;
+        int high = size - 1;
+
+        while (low <= high) {
+            int midIndex = (low + high) >>> 1;
+            int key = keyAt(midIndex);
+            if (n > key)
+                low = midIndex + 1;
+            else if (n < key)
+                high = midIndex - 1;
+            else
+                return midIndex;
+        }
+        return low - 1;
+    }
+
+    public void force() {
+        if (buffer instanceof MappedByteBuffer)
+            ((MappedByteBuffer) buffer).force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            force();
+            channel.close();
+        }
+    }
+}
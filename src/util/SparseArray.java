@@ -11,14 +11,29 @@ package util;
 import java.util.*;
 
 public class SparseArray<T> {
-    public static final int INITIAL_SIZE = 1000;
-    private int[] keys = new int[INITIAL_SIZE];
-    private Object[] values = new Object[INITIAL_SIZE];
+    public static final int INITIAL_SIZE = 16;
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+    private int[] keys;
+    private Object[] values;
     private int size = 0;
 
+    public SparseArray() {
+        this(INITIAL_SIZE);
+    }
+
+    public SparseArray(int initialCapacity) {
+        if (initialCapacity < 0) throw new IllegalArgumentException("capacity " + initialCapacity);
+        keys = new int[initialCapacity];
+        values = new Object[initialCapacity];
+    }
+
     public void put(int key, T value) {
         if (value == null) return;
 
+        if (size == 0 || key > keys[size - 1]) {
+            insertAfter(key, value, size - 1);
+            return;
+        }
         int index = binarySearch(key, keys, size);
         if (index != -1 && keys[index] == key)
             values[index] = value;
@@ -26,25 +41,75 @@ public class SparseArray<T> {
             insertAfter(key, value, index);
     }
 
+    // keys must be strictly increasing; null values are skipped
+    public void putAll(int[] sortedKeys, T[] newValues) {
+        if (sortedKeys.length != newValues.length)
+            throw new IllegalArgumentException(sortedKeys.length + " keys but " + newValues.length + " values");
+        for (int i = 1; i < sortedKeys.length; i++)
+            if (sortedKeys[i - 1] >= sortedKeys[i])
+                throw new IllegalArgumentException("keys not strictly increasing at index " + i);
+
+        int[] mergedKeys = new int[Math.max(keys.length, size + sortedKeys.length)];
+        Object[] mergedValues = new Object[mergedKeys.length];
+        int merged = 0;
+        int i = 0;
+        int j = 0;
+        while (i < size || j < sortedKeys.length) {
+            if (j < sortedKeys.length && newValues[j] == null) {
+                j++;
+            } else if (j == sortedKeys.length || (i < size && keys[i] < sortedKeys[j])) {
+                mergedKeys[merged] = keys[i];
+                mergedValues[merged++] = values[i++];
+            } else {
+                if (i < size && keys[i] == sortedKeys[j]) i++;
+                mergedKeys[merged] = sortedKeys[j];
+                mergedValues[merged++] = newValues[j++];
+            }
+        }
+        keys = mergedKeys;
+        values = mergedValues;
+        size = merged;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T remove(int key) {
+        int index = binarySearch(key, keys, size);
+        if (index == -1 || keys[index] != key)
+            return null;
+
+        T removed = (T) values[index];
+        int moved = size - index - 1;
+        System.arraycopy(keys, index + 1, keys, index, moved);
+        System.arraycopy(values, index + 1, values, index, moved);
+        values[--size] = null;
+        return removed;
+    }
+
     public int size() {
         return size;
     }
 
     private void insertAfter(int key, T value, int index) {
-        int[] newKeys = new int[INITIAL_SIZE];
-        Object[] newValues = new Object[INITIAL_SIZE];
-
-        copyFromBefore(index, newKeys, newValues);
+        ensureCapacity(size + 1);
 
         int newIndex = index + 1;
-        newKeys[newIndex] = key;
-        newValues[newIndex] = value;
+        int moved = size - newIndex;
+        if (moved != 0) {
+            System.arraycopy(keys, newIndex, keys, newIndex + 1, moved);
+            System.arraycopy(values, newIndex, values, newIndex + 1, moved);
+        }
+        keys[newIndex] = key;
+        values[newIndex] = value;
+        size++;
+    }
 
-        if (size - newIndex != 0)
-            copyFromAfter(index, newKeys, newValues);
+    private void ensureCapacity(int needed) {
+        if (needed <= keys.length) return;
+        if (needed > MAX_CAPACITY) throw new OutOfMemoryError("sparse array too large");
 
-        keys = newKeys;
-        values = newValues;
+        int capacity = (int) Math.min(MAX_CAPACITY, Math.max(needed, 2L * keys.length));
+        keys = Arrays.copyOf(keys, capacity);
+        values = Arrays.copyOf(values, capacity);
     }
 
     public void checkInvariants() throws InvariantException {
@@ -52,17 +117,9 @@ public class SparseArray<T> {
         if (nonNullValues != size)
             throw new InvariantException("size " + size +
                     " does not match value count of " + nonNullValues);
-    }
-
-    private void copyFromAfter(int index, int[] newKeys, Object[] newValues) {
-        int start = index + 1;
-        System.arraycopy(keys, start, newKeys, start + 1, size - start);
-        System.arraycopy(values, start, newValues, start + 1, size - start);
-    }
-
-    private void copyFromBefore(int index, int[] newKeys, Object[] newValues) {
-        System.arraycopy(keys, 0, newKeys, 0, index + 1);
-        System.arraycopy(values, 0, newValues, 0, index + 1);
+        for (int i = 1; i < size; i++)
+            if (keys[i - 1] >= keys[i])
+                throw new InvariantException("keys out of order at index " + i);
     }
 
     @SuppressWarnings("unchecked")
@@ -79,7 +136,7 @@ public class SparseArray<T> {
         int high = size - 1;
 
         while (low <= high) {
-            int midIndex = (low + high) / 2;
+            int midIndex = (low + high) >>> 1;
             if (n > nums[midIndex])
                 low = midIndex + 1;
             else if (n < nums[midIndex])
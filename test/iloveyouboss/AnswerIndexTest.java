@@ -0,0 +1,120 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.*;
+
+public class AnswerIndexTest {
+    private RandomProfiles data;
+    private ProfilePool pool;
+    private ColumnarProfilePool columnar;
+    private AnswerIndex index;
+
+    @Before
+    public void create() {
+        data = new RandomProfiles(6, 12);
+        pool = data.pool(800, 0.8);
+        columnar = pool.columnar();
+        index = columnar.index();
+    }
+
+    @Test
+    public void rowsWithChoiceListsEveryProfileGivingThatAnswer() {
+        for (Question question : data.questions())
+            for (int choice = 0; choice < question.getAnswerChoiceCount(); choice++) {
+                BitSet expected = new BitSet();
+                for (int row = 0; row < columnar.size(); row++) {
+                    Answer answer = columnar.profile(row).getAnswer(question.getId());
+                    if (answer != null && answer.getIndex() == choice)
+                        expected.set(row);
+                }
+                assertEquals(expected, index.rowsWithChoice(question.getId(), choice));
+            }
+    }
+
+    @Test
+    public void percentileRowsMatchingIncludeLowerChoices() {
+        Question percentile = data.question(0);
+
+        BitSet matching = index.rowsMatching(percentile.getId(), 2);
+
+        BitSet expected = new BitSet();
+        for (int choice = 0; choice <= 2; choice++)
+            expected.or(index.rowsWithChoice(percentile.getId(), choice));
+        assertEquals(expected, matching);
+    }
+
+    @Test
+    public void unknownQuestionOrChoiceHasNoRows() {
+        assertTrue(index.rowsWithChoice(999, 0).isEmpty());
+        assertTrue(index.rowsWithChoice(1, 7).isEmpty());
+    }
+
+    @Test
+    public void changingReturnedRowsLeavesIndexAlone() {
+        Question question = data.question(1);
+        BitSet before = index.rowsWithChoice(question.getId(), 0);
+        BitSet matchingBefore = index.rowsMatching(question.getId(), 0);
+
+        index.rowsWithChoice(question.getId(), 0).clear();
+        index.rowsMatching(question.getId(), 0).set(0, columnar.size());
+        index.rowsWithChoice(999, 0).set(3);
+
+        assertEquals(before, index.rowsWithChoice(question.getId(), 0));
+        assertEquals(matchingBefore, index.rowsMatching(question.getId(), 0));
+        assertTrue(index.rowsWithChoice(999, 0).isEmpty());
+        assertTrue(pool.columnar().index().rowsWithChoice(999, 0).isEmpty());
+    }
+
+    @Test
+    public void candidatesPassEveryMustMatch() {
+        for (int i = 0; i < 20; i++) {
+            Criteria criteria = data.criteria(4, Weight.MustMatch, Weight.Important);
+            CompiledCriteria compiled = criteria.compile();
+
+            BitSet candidates = index.candidates(compiled);
+
+            for (int row = 0; row < columnar.size(); row++) {
+                boolean passes = true;
+                for (int m = 0; m < compiled.mustMatchCount(); m++) {
+                    Answer answer = columnar.profile(row).getAnswer(compiled.questionId(m));
+                    passes &= compiled.test(m, answer == null ? ColumnarProfilePool.UNANSWERED : answer.getIndex());
+                }
+                assertEquals(passes, candidates.get(row));
+            }
+        }
+    }
+
+    @Test
+    public void scoresLikeColumnarScan() {
+        for (int i = 0; i < 30; i++) {
+            Criteria criteria = data.criteria(1 + i % 6);
+            MatchResults expected = columnar.score(criteria);
+
+            MatchResults results = index.score(criteria);
+
+            for (int row = 0; row < results.size(); row++) {
+                assertEquals(expected.score(row), results.score(row));
+                assertEquals(expected.matches(row), results.matches(row));
+            }
+        }
+    }
+
+    @Test
+    public void topKAgreesWithPool() {
+        for (int i = 0; i < 30; i++) {
+            Criteria criteria = data.criteria(1 + i % 6);
+            assertEquals(pool.topK(criteria, 25), index.topK(criteria, 25));
+        }
+    }
+}
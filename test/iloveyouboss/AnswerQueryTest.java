@@ -0,0 +1,93 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+import org.junit.*;
+
+public class AnswerQueryTest {
+    private RandomProfiles random;
+    private ProfilePool pool;
+    private AnswerIndex index;
+
+    @Before
+    public void create() {
+        random = new RandomProfiles(79, 15);
+        pool = random.pool(800, 0.5);
+        index = new AnswerIndex(pool.columnar());
+    }
+
+    @Test
+    public void everyPathAgreesWithAPredicateScan() {
+        List<AnswerQuery> queries = Arrays.asList(
+                AnswerQuery.answered(3),
+                AnswerQuery.choiceIn(3, 0, 2),
+                AnswerQuery.choiceIn(4, Bool.TRUE),
+                AnswerQuery.choiceIn(random.question(6), "a", "d"),
+                AnswerQuery.choiceIn(5),
+                AnswerQuery.answered(99),
+                AnswerQuery.choiceIn(3, 1, 2).and(answer -> answer.getIndex() != 2),
+                AnswerQuery.where(answer -> answer.getIndex() == 1));
+
+        for (AnswerQuery query : queries) {
+            List<Answer> expected = scan(query::test);
+            assertEquals(query.toString(), expected, pool.find(query).collect(Collectors.toList()));
+            assertEquals(query.toString(), expected, index.find(query).collect(Collectors.toList()));
+            assertEquals(query.toString(), expected, pool.profiles().stream()
+                    .flatMap(profile -> profile.find(query).stream()).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void profileFindAgreesWithClassicFind() {
+        AnswerQuery query = AnswerQuery.choiceIn(7, Bool.FALSE);
+
+        for (Profile profile : pool.profiles())
+            assertEquals(profile.classicFind(query), profile.find(query));
+    }
+
+    @Test
+    public void indexFiltersOutAnswersChangedSinceItWasBuilt() {
+        AnswerQuery query = AnswerQuery.choiceIn(4, Bool.TRUE);
+        for (Profile profile : pool.profiles())
+            if (profile.getAnswer(4) != null && profile.getAnswer(4).getIndex() == Bool.TRUE)
+                profile.add(new Answer(random.question(4), Bool.FALSE));
+
+        assertEquals(0, index.find(query).count());
+    }
+
+    @Test
+    public void ignoresUnknownChoices() {
+        Question question = random.question(3);
+
+        assertEquals(scan(AnswerQuery.choiceIn(3, 1)::test),
+                pool.find(AnswerQuery.choiceIn(question, "b", "no such choice")).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void onlyQuestionQueriesAreIndexable() {
+        assertTrue(AnswerQuery.answered(1).isIndexable());
+        assertTrue(AnswerQuery.choiceIn(1, 0).and(answer -> true).isIndexable());
+        assertFalse(AnswerQuery.where(answer -> true).isIndexable());
+    }
+
+    private List<Answer> scan(Predicate<Answer> predicate) {
+        List<Answer> found = new ArrayList<>();
+        for (Profile profile : pool.profiles())
+            for (Answer answer : profile.getAnswers())
+                if (predicate.test(answer))
+                    found.add(answer);
+        return found;
+    }
+}
@@ -0,0 +1,77 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.*;
+
+import util.*;
+
+public class BatchScorerTest {
+    private RandomProfiles random;
+    private ProfilePool pool;
+
+    @Before
+    public void create() {
+        random = new RandomProfiles(53, 25);
+        pool = random.pool(2000, 0.6);
+    }
+
+    @Test
+    public void eachQueryAgreesWithPoolTopK() {
+        List<Criteria> criteria = new ArrayList<>();
+        for (int i = 0; i < 40; i++)
+            criteria.add(random.criteria(1 + random.random().nextInt(10)));
+
+        List<List<Profile>> results = new BatchScorer(criteria).topK(pool, 15);
+
+        assertEquals(criteria.size(), results.size());
+        for (int i = 0; i < criteria.size(); i++)
+            assertEquals(pool.topK(criteria.get(i), 15), results.get(i));
+    }
+
+    @Test
+    public void sharedQuestionsAreScoredPerQuery() {
+        Question question = random.question(1);
+        Criteria yes = new Criteria();
+        yes.add(new Criterion(new Answer(question, Bool.TRUE), Weight.MustMatch));
+        Criteria no = new Criteria();
+        no.add(new Criterion(new Answer(question, Bool.FALSE), Weight.MustMatch));
+
+        List<List<Profile>> results = new BatchScorer(Arrays.asList(yes, no)).topK(pool, pool.profiles().size());
+
+        for (Profile profile : results.get(0))
+            assertEquals(Bool.TRUE, profile.getAnswer(1).getIndex());
+        for (Profile profile : results.get(1))
+            assertEquals(Bool.FALSE, profile.getAnswer(1).getIndex());
+        long answered = pool.profiles().stream().filter(p -> p.getAnswer(1) != null).count();
+        assertEquals(answered, results.get(0).size() + results.get(1).size());
+    }
+
+    @Test
+    public void droppedQueryIsSkipped() {
+        BatchScorer scorer = new BatchScorer(Arrays.asList(random.criteria(5), random.criteria(5)));
+        BoundedScoreHeap kept = new BoundedScoreHeap(10);
+        BoundedScoreHeap[] heaps = {null, kept};
+
+        for (int row = 0; row < pool.profiles().size(); row++)
+            scorer.offer(pool.profiles().get(row), row, heaps);
+
+        assertNull(heaps[0]);
+        assertTrue(kept.size() > 0);
+    }
+
+    @Test
+    public void noQueriesGivesNoResults() {
+        assertTrue(new BatchScorer(new ArrayList<Criteria>()).topK(pool, 10).isEmpty());
+    }
+}
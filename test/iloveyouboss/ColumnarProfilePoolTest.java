@@ -0,0 +1,77 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.*;
+
+public class ColumnarProfilePoolTest {
+    private RandomProfiles data;
+    private ProfilePool pool;
+    private ColumnarProfilePool columnar;
+
+    @Before
+    public void create() {
+        data = new RandomProfiles(1, 12);
+        pool = data.pool(500, 0.8);
+        columnar = pool.columnar();
+    }
+
+    @Test
+    public void scoresEachRowAsProfileWouldAlone() {
+        for (int i = 0; i < 50; i++) {
+            Criteria criteria = data.criteria(1 + i % 5);
+            MatchResults results = columnar.score(criteria);
+            for (int row = 0; row < columnar.size(); row++) {
+                long expected = RandomProfiles.expectedScore(columnar.profile(row), criteria);
+                assertEquals(Math.max(expected, 0), results.score(row));
+                assertEquals(expected != Profile.NO_MATCH, results.matches(row));
+            }
+        }
+    }
+
+    @Test
+    public void rankedAgreesWithPoolRanked() {
+        for (int i = 0; i < 20; i++) {
+            Criteria criteria = data.criteria(4);
+            pool.score(criteria);
+            List<Profile> expected = new ArrayList<>();
+            for (Profile profile : pool.ranked())
+                if (profile.evaluate(criteria) != Profile.NO_MATCH)
+                    expected.add(profile);
+
+            assertEquals(expected, columnar.ranked(criteria));
+        }
+    }
+
+    @Test
+    public void unansweredQuestionDoesNotMatch() {
+        Question question = new BooleanQuestion(100, "never answered");
+        Criteria criteria = new Criteria();
+        criteria.add(new Criterion(new Answer(question, Bool.TRUE), Weight.Important));
+
+        MatchResults results = columnar.score(criteria);
+
+        for (int row = 0; row < results.size(); row++)
+            assertFalse(results.matches(row));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsQuestionsWithMoreChoicesThanAByteHolds() {
+        String[] choices = new String[200];
+        Arrays.setAll(choices, i -> "choice " + i);
+        Profile profile = new Profile("wide");
+        profile.add(new Answer(new PercentileQuestion(0, "wide", choices), 150));
+
+        new ColumnarProfilePool(Collections.singletonList(profile));
+    }
+}
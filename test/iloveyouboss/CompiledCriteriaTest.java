@@ -0,0 +1,93 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import static org.junit.Assert.*;
+
+import org.junit.*;
+
+public class CompiledCriteriaTest {
+    private Question smoker = new BooleanQuestion(1, "Smoker?");
+    private Question salary = new PercentileQuestion(2, "Salary?", new String[]{"low", "mid", "high"});
+    private Question relocate = new BooleanQuestion(3, "Relocate?");
+    private Criteria criteria;
+
+    @Before
+    public void create() {
+        criteria = new Criteria();
+        criteria.add(new Criterion(new Answer(salary, 1), Weight.Important));
+        criteria.add(new Criterion(new Answer(smoker, Bool.FALSE), Weight.MustMatch));
+        criteria.add(new Criterion(new Answer(relocate, Bool.TRUE), Weight.WouldPrefer));
+    }
+
+    @Test
+    public void putsMustMatchCriteriaFirst() {
+        CompiledCriteria compiled = criteria.compile();
+
+        assertEquals(3, compiled.size());
+        assertEquals(1, compiled.mustMatchCount());
+        assertEquals(smoker.getId(), compiled.questionId(0));
+        assertTrue(compiled.isMustMatch(0));
+        assertFalse(compiled.isMustMatch(1));
+    }
+
+    @Test
+    public void mustMatchWeighsNothing() {
+        CompiledCriteria compiled = criteria.compile();
+
+        assertEquals(0, compiled.weight(0));
+        assertEquals(Weight.Important.getValue() + Weight.WouldPrefer.getValue(), compiled.remainingWeight(0));
+        assertEquals(Weight.WouldPrefer.getValue(), compiled.remainingWeight(2));
+        assertEquals(0, compiled.remainingWeight(3));
+    }
+
+    @Test
+    public void dontCareBecomesAlwaysMatches() {
+        criteria.add(new Criterion(new Answer(relocate, Bool.FALSE), Weight.DontCare));
+
+        CompiledCriteria compiled = criteria.compile();
+
+        assertEquals(3, compiled.size());
+        assertTrue(compiled.alwaysMatches());
+    }
+
+    @Test
+    public void booleanChoicesMatchExactly() {
+        CompiledCriteria compiled = criteria.compile();
+
+        assertTrue(compiled.test(0, Bool.FALSE));
+        assertFalse(compiled.test(0, Bool.TRUE));
+    }
+
+    @Test
+    public void percentileChoicesMatchAtOrBelowExpected() {
+        CompiledCriteria compiled = criteria.compile();
+        int salaryAt = compiled.questionId(1) == salary.getId() ? 1 : 2;
+
+        assertTrue(compiled.test(salaryAt, 0));
+        assertTrue(compiled.test(salaryAt, 1));
+        assertFalse(compiled.test(salaryAt, 2));
+    }
+
+    @Test
+    public void unansweredNeverMatches() {
+        assertFalse(criteria.compile().test(0, ColumnarProfilePool.UNANSWERED));
+    }
+
+    @Test
+    public void compiledOnceScoresLikeCriteria() {
+        RandomProfiles data = new RandomProfiles(4, 10);
+        for (int i = 0; i < 20; i++) {
+            Criteria random = data.criteria(5);
+            CompiledCriteria compiled = random.compile();
+            for (Profile profile : data.profiles(50, 0.7))
+                assertEquals(RandomProfiles.expectedScore(profile, random), profile.evaluate(compiled));
+        }
+    }
+}
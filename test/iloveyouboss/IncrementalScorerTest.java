@@ -0,0 +1,160 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+import org.junit.*;
+
+public class IncrementalScorerTest {
+    private RandomProfiles random;
+    private ProfilePool pool;
+    private IncrementalScorer scorer;
+
+    @Before
+    public void create() {
+        random = new RandomProfiles(29, 30);
+        pool = random.pool(200, 0.5);
+        scorer = new IncrementalScorer(pool);
+    }
+
+    @After
+    public void close() {
+        scorer.close();
+    }
+
+    @Test
+    public void scoresRegisteredSearchAgainstExistingProfiles() {
+        Criteria criteria = random.criteria(8);
+
+        SavedSearch search = scorer.register(criteria);
+
+        assertScores(search, criteria);
+    }
+
+    @Test
+    public void keepsScoresCurrentAsProfilesAreAddedAndChanged() {
+        List<Criteria> criteria = new ArrayList<>();
+        List<SavedSearch> searches = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            criteria.add(random.criteria(6));
+            searches.add(scorer.register(criteria.get(i)));
+        }
+
+        for (int i = 0; i < 2000; i++) {
+            if (i % 10 == 0) {
+                pool.add(random.profile("added " + i, 0.5));
+            } else {
+                Profile profile = pool.profiles().get(random.random().nextInt(pool.profiles().size()));
+                profile.add(random.answer(random.question(random.random().nextInt(30))));
+            }
+        }
+
+        for (int i = 0; i < searches.size(); i++)
+            assertScores(searches.get(i), criteria.get(i));
+    }
+
+    @Test
+    public void profileAddedTwiceIsCountedOnce() {
+        Criteria criteria = random.criteria(8);
+        SavedSearch search = scorer.register(criteria);
+        Profile profile = pool.profiles().get(0);
+
+        pool.add(profile);
+        for (Question question : random.questions())
+            profile.add(random.answer(question));
+
+        assertScores(search, criteria);
+    }
+
+    @Test
+    public void topKAgreesWithPool() {
+        Criteria criteria = random.criteria(8);
+        SavedSearch search = scorer.register(criteria);
+        for (int i = 0; i < 500; i++) {
+            Profile profile = pool.profiles().get(random.random().nextInt(pool.profiles().size()));
+            profile.add(random.answer(random.question(random.random().nextInt(30))));
+        }
+
+        assertEquals(pool.topK(criteria, 25), search.topK(25));
+        assertEquals(pool.topK(criteria, pool.profiles().size()), search.ranked());
+    }
+
+    @Test
+    public void unregisteredSearchStopsTracking() {
+        Criteria criteria = random.criteria(8);
+        SavedSearch search = scorer.register(criteria);
+        scorer.unregister(search);
+
+        for (Profile profile : pool.profiles())
+            for (Question question : random.questions())
+                profile.add(random.answer(question));
+
+        boolean stale = false;
+        for (Profile profile : pool.profiles())
+            stale |= search.score(profile) != Math.max(0, RandomProfiles.expectedScore(profile, criteria));
+        assertTrue(stale);
+    }
+
+    @Test
+    public void countsEachAnswerOnceWhenChangesRaceRegistration() throws InterruptedException {
+        for (int trial = 0; trial < 20; trial++) {
+            ProfilePool racedPool = random.pool(100, 0.5);
+            IncrementalScorer racedScorer = new IncrementalScorer(racedPool);
+            AtomicBoolean done = new AtomicBoolean();
+            Random writerRandom = new Random(trial);
+            Thread writer = new Thread(() -> {
+                while (!done.get()) {
+                    List<Profile> profiles = racedPool.profiles();
+                    Profile profile = profiles.get(writerRandom.nextInt(profiles.size()));
+                    Question question = random.question(writerRandom.nextInt(30));
+                    profile.add(new Answer(question, writerRandom.nextInt(question.getAnswerChoiceCount())));
+                }
+            });
+            Thread adder = new Thread(() -> {
+                for (int i = 0; i < 50; i++)
+                    racedPool.add(new Profile("raced " + i));
+            });
+            writer.start();
+            adder.start();
+
+            List<Criteria> criteria = new ArrayList<>();
+            List<SavedSearch> searches = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                criteria.add(random.criteria(6, Weight.MustMatch, Weight.Important, Weight.WouldPrefer));
+                searches.add(racedScorer.register(criteria.get(i)));
+            }
+            adder.join();
+            done.set(true);
+            writer.join();
+
+            for (int i = 0; i < searches.size(); i++)
+                for (Profile profile : racedPool.profiles())
+                    assertEquals(Math.max(0, RandomProfiles.expectedScore(profile, criteria.get(i))),
+                            searches.get(i).score(profile));
+            racedScorer.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsProfileOutsidePool() {
+        scorer.register(random.criteria(3)).score(new Profile("stranger"));
+    }
+
+    private void assertScores(SavedSearch search, Criteria criteria) {
+        for (Profile profile : pool.profiles()) {
+            long expected = RandomProfiles.expectedScore(profile, criteria);
+            assertEquals(profile.getName(), Math.max(0, expected), search.score(profile));
+            assertEquals(profile.getName(), expected != Profile.NO_MATCH, search.matches(profile));
+        }
+    }
+}
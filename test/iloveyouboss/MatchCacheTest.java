@@ -0,0 +1,128 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.*;
+
+public class MatchCacheTest {
+    private RandomProfiles random;
+    private ProfilePool pool;
+    private MatchCache cache;
+    private Criteria criteria;
+
+    @Before
+    public void create() {
+        random = new RandomProfiles(43, 20);
+        pool = random.pool(300, 0.6);
+        cache = new MatchCache(pool, 3);
+        criteria = random.criteria(5, Weight.Important, Weight.WouldPrefer);
+    }
+
+    @Test
+    public void repeatedQueryIsAHit() {
+        List<Profile> first = cache.topK(criteria, 10);
+
+        assertSame(first, cache.topK(criteria, 10));
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+        assertEquals(0.5, cache.hitRate(), 0.0);
+    }
+
+    @Test
+    public void differentKIsADifferentEntry() {
+        cache.topK(criteria, 10);
+        cache.topK(criteria, 5);
+
+        assertEquals(0, cache.hits());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void answerChangeInvalidates() {
+        MatchResults before = cache.score(criteria);
+        Profile profile = pool.profiles().get(0);
+        Criterion criterion = criteria.iterator().next();
+        Question question = criterion.getAnswer().getQuestion();
+        int other = (criterion.getAnswer().getIndex() + 1) % question.getAnswerChoiceCount();
+        profile.add(new Answer(question, other));
+
+        MatchResults after = cache.score(criteria);
+
+        assertNotSame(before, after);
+        assertEquals(Math.max(0, RandomProfiles.expectedScore(profile, criteria)), after.score(0));
+        assertEquals(0, cache.hits());
+    }
+
+    @Test
+    public void poolAddInvalidates() {
+        cache.topK(criteria, 400);
+        Profile added = random.profile("added", 1.0);
+        pool.add(added);
+
+        assertEquals(pool.topK(criteria, 400), cache.topK(criteria, 400));
+        assertEquals(0, cache.hits());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        Criteria second = random.criteria(5);
+        Criteria third = random.criteria(5);
+        Criteria fourth = random.criteria(5);
+        cache.topK(criteria, 10);
+        cache.topK(second, 10);
+        cache.topK(third, 10);
+        cache.topK(criteria, 10);
+
+        cache.topK(fourth, 10);
+
+        assertEquals(1, cache.evictions());
+        assertEquals(3, cache.size());
+        cache.topK(criteria, 10);
+        assertEquals(2, cache.hits());
+        cache.topK(second, 10);
+        assertEquals(2, cache.hits());
+    }
+
+    @Test
+    public void criteriaOrderDoesNotMatter() {
+        List<Criterion> entries = new ArrayList<>();
+        criteria.forEach(entries::add);
+        Collections.reverse(entries);
+        Criteria reversed = new Criteria();
+        entries.forEach(reversed::add);
+
+        assertEquals(new CriteriaFingerprint(criteria), new CriteriaFingerprint(reversed));
+        cache.topK(criteria, 10);
+        cache.topK(reversed, 10);
+        assertEquals(1, cache.hits());
+    }
+
+    @Test
+    public void differentWeightIsADifferentFingerprint() {
+        Criterion criterion = criteria.iterator().next();
+        Criteria one = new Criteria();
+        one.add(new Criterion(criterion.getAnswer(), Weight.Important));
+        Criteria other = new Criteria();
+        other.add(new Criterion(criterion.getAnswer(), Weight.WouldPrefer));
+
+        assertNotEquals(new CriteriaFingerprint(one), new CriteriaFingerprint(other));
+    }
+
+    @Test
+    public void clearEmptiesTheCache() {
+        cache.topK(criteria, 10);
+        cache.clear();
+
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,127 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+
+import org.junit.*;
+
+public class MatchMetricsTest {
+    private MatchMetrics metrics;
+    private RandomProfiles random;
+    private ProfilePool pool;
+
+    @Before
+    public void create() {
+        metrics = MatchMetrics.global();
+        metrics.reset();
+        random = new RandomProfiles(61, 20);
+        pool = random.pool(500, 0.6);
+    }
+
+    @After
+    public void disable() {
+        metrics.setEnabled(false);
+        metrics.reset();
+    }
+
+    @Test
+    public void recordsNothingWhileDisabled() {
+        metrics.setEnabled(false);
+
+        pool.topK(random.criteria(5), 10);
+        pool.score(random.criteria(5));
+
+        assertEquals(0, metrics.getTopKCount());
+        assertEquals(0, metrics.getScoreCount());
+        assertEquals(0, metrics.getProfilesEvaluated());
+        assertNull(metrics.evaluations());
+    }
+
+    @Test
+    public void countsOperationsAndEvaluationsWhileEnabled() {
+        metrics.setEnabled(true);
+
+        pool.topK(random.criteria(5, Weight.Important), 10);
+        pool.topK(random.criteria(5, Weight.Important), 10);
+        pool.score(random.criteria(3, Weight.Important));
+        pool.ranked();
+
+        assertEquals(2, metrics.getTopKCount());
+        assertEquals(1, metrics.getScoreCount());
+        assertEquals(1, metrics.getRankCount());
+        assertEquals(3 * pool.profiles().size(), metrics.getProfilesEvaluated());
+        assertEquals(13.0 / 3, metrics.getCriteriaPerQuery(), 1e-9);
+        assertTrue(metrics.totalLatency(MatchMetrics.Operation.TOP_K, TimeUnit.NANOSECONDS) > 0);
+    }
+
+    @Test
+    public void countsMustMatchRejections() {
+        metrics.setEnabled(true);
+        Criteria criteria = new Criteria();
+        criteria.add(new Criterion(new Answer(random.question(1), Bool.TRUE), Weight.MustMatch));
+
+        pool.score(criteria);
+
+        long failing = pool.profiles().stream()
+                .filter(p -> p.getAnswer(1) == null || p.getAnswer(1).getIndex() != Bool.TRUE).count();
+        assertEquals(failing, metrics.getRejectedByMustMatch());
+    }
+
+    @Test
+    public void tracksCacheHitRate() {
+        metrics.setEnabled(true);
+        MatchCache cache = new MatchCache(pool, 10);
+        Criteria criteria = random.criteria(4);
+
+        cache.topK(criteria, 5);
+        cache.topK(criteria, 5);
+        cache.topK(criteria, 5);
+
+        assertEquals(2.0 / 3, metrics.getCacheHitRate(), 1e-9);
+    }
+
+    @Test
+    public void resetClearsEverything() {
+        metrics.setEnabled(true);
+        pool.topK(random.criteria(5), 10);
+
+        metrics.reset();
+
+        assertEquals(0, metrics.getTopKCount());
+        assertEquals(0, metrics.getProfilesEvaluated());
+        assertEquals(0, metrics.latencyMicros("TOP_K", 0.99));
+    }
+
+    @Test
+    public void exposesPrometheusText() throws IOException {
+        metrics.setEnabled(true);
+        pool.topK(random.criteria(5), 10);
+
+        try (MetricsServer server = new MetricsServer(metrics, 0)) {
+            URL url = new URL("http://localhost:" + server.port() + "/metrics");
+            String text;
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(url.openStream(), StandardCharsets.UTF_8))) {
+                text = reader.lines().collect(Collectors.joining("\n"));
+            }
+
+            assertTrue(text.contains("# TYPE match_profiles_evaluated_total counter\nmatch_profiles_evaluated_total 500"));
+            assertTrue(text.contains("match_latency_seconds_count{operation=\"top_k\"} 1"));
+            assertTrue(text.contains("match_latency_seconds{operation=\"top_k\",quantile=\"0.99\"}"));
+            assertFalse(text.contains("operation=\"rank\",quantile"));
+        }
+    }
+}
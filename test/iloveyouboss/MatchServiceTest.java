@@ -0,0 +1,163 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.*;
+
+public class MatchServiceTest {
+    private RandomProfiles random;
+    private ProfilePool pool;
+    private MatchService service;
+
+    @Before
+    public void create() {
+        random = new RandomProfiles(47, 30);
+        pool = random.pool(5000, 0.6);
+    }
+
+    @After
+    public void close() {
+        if (service != null) service.close();
+    }
+
+    @Test
+    public void unbatchedQueryAgreesWithPool() throws InterruptedException {
+        service = new MatchService(pool, 4, 0);
+        Criteria criteria = random.criteria(8);
+
+        assertEquals(pool.topK(criteria, 20), service.query(criteria, 20, 10, TimeUnit.SECONDS));
+        assertEquals(1, service.completed());
+    }
+
+    @Test
+    public void batchedQueriesAgreeWithPool() throws Exception {
+        service = new MatchService(pool, 50, 20);
+        List<Criteria> criteria = new ArrayList<>();
+        List<CompletableFuture<List<Profile>>> results = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            criteria.add(random.criteria(6));
+            results.add(service.submit(criteria.get(i), 10, 10, TimeUnit.SECONDS));
+        }
+
+        for (int i = 0; i < criteria.size(); i++)
+            assertEquals(pool.topK(criteria.get(i), 10), results.get(i).get());
+        assertTrue(service.scans() < criteria.size());
+    }
+
+    @Test
+    public void permitsReturnWhenQueriesFinish() throws Exception {
+        service = new MatchService(pool, 3, 0);
+        List<CompletableFuture<List<Profile>>> results = new ArrayList<>();
+        for (int i = 0; i < 3; i++)
+            results.add(service.submit(random.criteria(5), 10, 10, TimeUnit.SECONDS));
+
+        for (CompletableFuture<List<Profile>> result : results)
+            result.get();
+        assertAvailable(3);
+    }
+
+    @Test
+    public void rejectsQueriesPastTheLimit() throws InterruptedException {
+        service = new MatchService(pool, 1, TimeUnit.HOURS.toMillis(1));
+        CompletableFuture<List<Profile>> first = service.submit(random.criteria(5), 10, 10, TimeUnit.SECONDS);
+
+        CompletableFuture<List<Profile>> second = service.submit(random.criteria(5), 10, 10, TimeUnit.SECONDS);
+
+        assertTrue(second.isCompletedExceptionally());
+        assertEquals(1, service.rejected());
+        assertFalse(first.isDone());
+    }
+
+    @Test
+    public void closeRunsPendingQueries() throws Exception {
+        service = new MatchService(pool, 2, TimeUnit.HOURS.toMillis(1));
+        Criteria criteria = random.criteria(5);
+        CompletableFuture<List<Profile>> pending = service.submit(criteria, 10, 10, TimeUnit.SECONDS);
+
+        service.close();
+
+        assertEquals(pool.topK(criteria, 10), pending.get(10, TimeUnit.SECONDS));
+        assertAvailable(2);
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void rejectsSubmitAfterClose() {
+        service = new MatchService(pool, 2, 0);
+        service.close();
+
+        service.submit(random.criteria(5), 10, 10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void badQueryFailsAloneWithoutTakingAPermit() throws Exception {
+        service = new MatchService(pool, 2, 20);
+        Criteria criteria = random.criteria(5);
+        CompletableFuture<List<Profile>> good = service.submit(criteria, 10, 10, TimeUnit.SECONDS);
+
+        try {
+            service.submit(random.criteria(5), -1, 10, TimeUnit.SECONDS);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            service.submit(random.criteria(5), 10, -1, TimeUnit.SECONDS);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+
+        assertEquals(pool.topK(criteria, 10), good.get(10, TimeUnit.SECONDS));
+        assertAvailable(2);
+    }
+
+    @Test
+    public void queryPastItsDeadlineTimesOut() throws InterruptedException {
+        service = new MatchService(pool, 2, 0);
+
+        try {
+            service.query(random.criteria(5), 10, 0, TimeUnit.NANOSECONDS);
+            fail();
+        } catch (QueryTimeoutException expected) {
+        }
+        assertEquals(1, service.timedOut());
+        assertAvailable(2);
+    }
+
+    @Test
+    public void failedScanCompletesTheQuery() throws Exception {
+        Profile broken = new Profile("broken") {
+            @Override
+            public Answer getAnswer(int questionId) {
+                throw new IllegalStateException("broken profile");
+            }
+        };
+        pool.add(broken);
+        service = new MatchService(pool, 2, 0);
+
+        CompletableFuture<List<Profile>> result = service.submit(random.criteria(5), 10, 10, TimeUnit.SECONDS);
+
+        try {
+            result.get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException expected) {
+        }
+        assertAvailable(2);
+    }
+
+    // permits come back in a completion callback, which can run just after get() returns
+    private void assertAvailable(int permits) throws InterruptedException {
+        for (int i = 0; i < 100 && service.available() != permits; i++)
+            Thread.sleep(10);
+        assertEquals(permits, service.available());
+    }
+}
@@ -0,0 +1,238 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.*;
+
+public class MutationLogTest {
+    private RandomProfiles random;
+    private Path dir;
+    private Path file;
+
+    @Before
+    public void create() throws IOException {
+        random = new RandomProfiles(97, 20);
+        dir = Files.createTempDirectory("log");
+        file = dir.resolve("pool.log");
+    }
+
+    @After
+    public void delete() throws IOException {
+        for (File each : dir.toFile().listFiles())
+            Files.delete(each.toPath());
+        Files.delete(dir);
+    }
+
+    @Test
+    public void replayRebuildsTheLoggedPool() throws Exception {
+        ProfilePool pool = new ProfilePool();
+        try (MutationLog log = new MutationLog(file)) {
+            pool.addListener(log);
+            mutate(pool, 200, 1000);
+            log.sync().get(10, TimeUnit.SECONDS);
+            pool.removeListener(log);
+        }
+
+        ProfilePool replayed = new ProfilePool();
+        MutationLog.replay(file, replayed, random::question);
+
+        assertSamePool(pool, replayed);
+    }
+
+    @Test
+    public void syncCompletesOnceEarlierRecordsAreForced() throws Exception {
+        ProfilePool pool = new ProfilePool();
+        try (MutationLog log = new MutationLog(file)) {
+            pool.addListener(log);
+            mutate(pool, 50, 0);
+
+            log.sync().get(10, TimeUnit.SECONDS);
+
+            assertEquals(50, log.appended());
+            assertTrue(log.forces() >= 1);
+            assertTrue(log.forces() <= 50);
+            pool.removeListener(log);
+        }
+    }
+
+    @Test
+    public void ignoresATornRecordAtTheEnd() throws Exception {
+        ProfilePool pool = new ProfilePool();
+        try (MutationLog log = new MutationLog(file)) {
+            pool.addListener(log);
+            mutate(pool, 20, 100);
+            pool.removeListener(log);
+        }
+        long complete = Files.size(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(complete - 3);
+        }
+
+        ProfilePool replayed = new ProfilePool();
+        long records = MutationLog.replay(file, replayed, random::question);
+
+        assertEquals(119, records);
+        assertEquals(20, replayed.profiles().size());
+    }
+
+    @Test
+    public void reopeningDropsATornTailAndAppendsAfterTheLastGoodRecord() throws Exception {
+        ProfilePool pool = new ProfilePool();
+        try (MutationLog log = new MutationLog(file)) {
+            pool.addListener(log);
+            mutate(pool, 10, 30);
+            pool.removeListener(log);
+        }
+        Files.write(file, new byte[]{0, 0, 0, 40, 1, 2}, StandardOpenOption.APPEND);
+
+        try (MutationLog log = new MutationLog(file)) {
+            pool.addListener(log);
+            mutate(pool, 5, 30);
+            pool.removeListener(log);
+        }
+
+        ProfilePool replayed = new ProfilePool();
+        assertEquals(75, MutationLog.replay(file, replayed, random::question));
+        assertSamePool(pool, replayed);
+    }
+
+    @Test
+    public void compactionKeepsOnlyLatestAnswers() throws Exception {
+        ProfilePool pool = new ProfilePool();
+        try (MutationLog log = new MutationLog(file)) {
+            pool.addListener(log);
+            mutate(pool, 30, 2000);
+            pool.removeListener(log);
+        }
+        Path compacted = dir.resolve("compacted.log");
+
+        MutationLog.compact(file, compacted);
+
+        ProfilePool replayed = new ProfilePool();
+        assertEquals(30, MutationLog.replay(compacted, replayed, random::question));
+        assertSamePool(pool, replayed);
+        assertTrue(Files.size(compacted) < Files.size(file));
+    }
+
+    @Test
+    public void compactionReplacesTheTargetWithoutLeavingTemporaryFiles() throws Exception {
+        ProfilePool pool = new ProfilePool();
+        try (MutationLog log = new MutationLog(file)) {
+            pool.addListener(log);
+            mutate(pool, 10, 300);
+            pool.removeListener(log);
+        }
+        Path compacted = dir.resolve("compacted.log");
+        Files.write(compacted, new byte[]{1, 2, 3});
+
+        MutationLog.compact(file, compacted);
+        MutationLog.compact(compacted, compacted);
+
+        ProfilePool replayed = new ProfilePool();
+        assertEquals(10, MutationLog.replay(compacted, replayed, random::question));
+        assertSamePool(pool, replayed);
+        String[] files = dir.toFile().list();
+        Arrays.sort(files);
+        assertArrayEquals(new String[]{"compacted.log", "pool.log"}, files);
+    }
+
+    @Test
+    public void replayOnTopOfExistingProfilesUpdatesThem() throws Exception {
+        Profile existing = new Profile("profile 0");
+        ProfilePool pool = new ProfilePool();
+        pool.add(existing);
+        try (MutationLog log = new MutationLog(file)) {
+            pool.addListener(log);
+            existing.add(new Answer(random.question(1), Bool.TRUE));
+            pool.removeListener(log);
+        }
+
+        ProfilePool restored = new ProfilePool();
+        Profile snapshotted = new Profile("profile 0");
+        restored.add(snapshotted);
+        MutationLog.replay(file, restored, random::question);
+
+        assertEquals(1, restored.profiles().size());
+        assertEquals(Bool.TRUE, snapshotted.getAnswer(1).getIndex());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void closedLogRejectsChanges() throws IOException {
+        ProfilePool pool = new ProfilePool();
+        Profile profile = new Profile("late");
+        pool.add(profile);
+        MutationLog log = new MutationLog(file);
+        pool.addListener(log);
+        log.close();
+
+        profile.add(new Answer(random.question(1), Bool.TRUE));
+    }
+
+    @Test
+    public void recordsRacingCloseAreNeverLeftPending() throws Exception {
+        for (int trial = 0; trial < 50; trial++) {
+            MutationLog log = new MutationLog(file);
+            List<CompletableFuture<Void>> syncs = new CopyOnWriteArrayList<>();
+            Thread syncer = new Thread(() -> {
+                try {
+                    while (true)
+                        syncs.add(log.sync());
+                } catch (IllegalStateException closed) {
+                }
+            });
+            syncer.start();
+            while (syncs.size() < 10)
+                Thread.yield();
+
+            log.close();
+            syncer.join();
+
+            for (CompletableFuture<Void> sync : syncs) {
+                try {
+                    sync.get(10, TimeUnit.SECONDS);
+                } catch (ExecutionException rejected) {
+                }
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsFileWithoutMagic() throws IOException {
+        Files.write(file, new byte[MutationLog.FILE_HEADER]);
+
+        new MutationLog(file);
+    }
+
+    private void mutate(ProfilePool pool, int profiles, int changes) {
+        int first = pool.profiles().size();
+        for (int i = 0; i < profiles; i++)
+            pool.add(random.profile("profile " + (first + i), 0.5));
+        for (int i = 0; i < changes; i++) {
+            Profile profile = pool.profiles().get(random.random().nextInt(pool.profiles().size()));
+            profile.add(random.answer(random.question(random.random().nextInt(20))));
+        }
+    }
+
+    private void assertSamePool(ProfilePool expected, ProfilePool actual) {
+        assertEquals(expected.profiles().size(), actual.profiles().size());
+        for (int row = 0; row < expected.profiles().size(); row++) {
+            assertEquals(expected.profiles().get(row).getName(), actual.profiles().get(row).getName());
+            assertEquals(expected.profiles().get(row).getAnswers().toString(),
+                    actual.profiles().get(row).getAnswers().toString());
+        }
+    }
+}
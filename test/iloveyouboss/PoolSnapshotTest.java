@@ -0,0 +1,142 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.*;
+
+public class PoolSnapshotTest {
+    private RandomProfiles random;
+    private ProfilePool pool;
+    private Path dir;
+    private Path file;
+
+    @Before
+    public void create() throws IOException {
+        random = new RandomProfiles(89, 20);
+        pool = random.pool(700, 0.6);
+        pool.add(new Profile("nothing answered"));
+        pool.add(new Profile("\u540d\u524d"));
+        dir = Files.createTempDirectory("snapshot");
+        file = dir.resolve("pool.snapshot");
+    }
+
+    @After
+    public void delete() throws IOException {
+        for (File each : dir.toFile().listFiles())
+            Files.delete(each.toPath());
+        Files.delete(dir);
+    }
+
+    @Test
+    public void reopensWithTheSameProfiles() throws IOException {
+        PoolSnapshot.write(pool, file);
+
+        PoolSnapshot snapshot = PoolSnapshot.open(file);
+
+        assertEquals(pool.profiles().size(), snapshot.size());
+        for (int row = 0; row < snapshot.size(); row++) {
+            Profile expected = pool.profiles().get(row);
+            Profile actual = snapshot.profile(row);
+            assertEquals(expected.getName(), actual.getName());
+            assertEquals(expected.getAnswers().toString(), actual.getAnswers().toString());
+        }
+    }
+
+    @Test
+    public void buildsEachProfileOnce() throws IOException {
+        PoolSnapshot.write(pool, file);
+        PoolSnapshot snapshot = PoolSnapshot.open(file);
+
+        assertSame(snapshot.profile(5), snapshot.profiles().get(5));
+    }
+
+    @Test
+    public void scoresAgreeWithThePool() throws IOException {
+        PoolSnapshot.write(pool, file);
+        PoolSnapshot snapshot = PoolSnapshot.open(file);
+
+        for (int i = 0; i < 20; i++) {
+            Criteria criteria = random.criteria(6);
+            MatchResults results = snapshot.score(criteria);
+            for (int row = 0; row < snapshot.size(); row++) {
+                long expected = RandomProfiles.expectedScore(pool.profiles().get(row), criteria);
+                assertEquals(expected != Profile.NO_MATCH, results.matches(row));
+                if (results.matches(row))
+                    assertEquals(expected, results.score(row));
+            }
+            assertEquals(names(pool.topK(criteria, 15)), names(snapshot.topK(criteria, 15)));
+        }
+    }
+
+    @Test
+    public void toPoolGivesAWritablePool() throws IOException {
+        PoolSnapshot.write(pool, file);
+
+        ProfilePool reopened = PoolSnapshot.open(file).toPool();
+        Criteria criteria = random.criteria(6);
+
+        assertEquals(names(pool.topK(criteria, 10)), names(reopened.topK(criteria, 10)));
+    }
+
+    @Test
+    public void changingThePoolLeavesTheSnapshotAlone() throws IOException {
+        PoolSnapshot.write(pool, file);
+        PoolSnapshot snapshot = PoolSnapshot.open(file);
+        Profile read = snapshot.profile(0);
+        Criteria criteria = random.criteria(6);
+        long before = snapshot.score(criteria).score(0);
+
+        ProfilePool writable = snapshot.toPool();
+        for (Question question : random.questions())
+            writable.profiles().get(0).add(random.answer(question));
+
+        assertNotSame(read, writable.profiles().get(0));
+        assertSame(read, snapshot.profile(0));
+        assertEquals(before, snapshot.score(criteria).score(0));
+    }
+
+    @Test
+    public void replacesAnExistingSnapshotWithoutLeavingTemporaryFiles() throws IOException {
+        PoolSnapshot.write(random.pool(10, 0.5), file);
+
+        PoolSnapshot.write(pool, file);
+
+        assertEquals(pool.profiles().size(), PoolSnapshot.open(file).size());
+        assertArrayEquals(new String[]{"pool.snapshot"}, dir.toFile().list());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTruncatedSnapshot() throws IOException {
+        PoolSnapshot.write(pool, file);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+
+        PoolSnapshot.open(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsFileWithoutMagic() throws IOException {
+        Files.write(file, new byte[PoolSnapshot.HEADER]);
+
+        PoolSnapshot.open(file);
+    }
+
+    private List<String> names(List<Profile> profiles) {
+        List<String> names = new ArrayList<>();
+        for (Profile profile : profiles)
+            names.add(profile.getName());
+        return names;
+    }
+}
@@ -0,0 +1,155 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.*;
+
+public class ProfilePoolTest {
+    private RandomProfiles data;
+    private ProfilePool pool;
+
+    @Before
+    public void create() {
+        data = new RandomProfiles(2, 16);
+        // big enough to split into several fork-join tasks
+        pool = data.pool(3 * ProfilePool.PARALLEL_THRESHOLD, 0.8);
+    }
+
+    @Test
+    public void parallelScoreAgreesWithScore() {
+        ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+        try {
+            for (int i = 0; i < 10; i++) {
+                Criteria criteria = data.criteria(5);
+                MatchResults results = pool.parallelScore(criteria, forkJoinPool);
+                pool.score(criteria);
+                for (int row = 0; row < results.size(); row++) {
+                    Profile profile = pool.profiles().get(row);
+                    assertSame(profile, results.profile(row));
+                    assertEquals(profile.score(), results.score(row));
+                    assertEquals(profile.matches(criteria), results.matches(row));
+                }
+            }
+        } finally {
+            forkJoinPool.shutdown();
+        }
+    }
+
+    @Test
+    public void parallelScoreLeavesProfileScoresAlone() {
+        Criteria criteria = data.criteria(5);
+        pool.score(criteria);
+        long[] before = pool.profiles().stream().mapToLong(Profile::score).toArray();
+
+        pool.parallelScore(data.criteria(5));
+
+        assertArrayEquals(before, pool.profiles().stream().mapToLong(Profile::score).toArray());
+    }
+
+    @Test
+    public void topKAgreesWithRanked() {
+        for (int i = 0; i < 10; i++) {
+            Criteria criteria = data.criteria(4);
+            pool.score(criteria);
+            List<Profile> ranked = pool.ranked();
+
+            List<Profile> top = pool.topK(criteria, 50);
+
+            assertEquals(scores(ranked.subList(0, top.size()), criteria), scores(top, criteria));
+        }
+    }
+
+    @Test
+    public void parallelTopKAgreesWithTopK() {
+        for (int i = 0; i < 10; i++) {
+            Criteria criteria = data.criteria(4);
+            assertEquals(pool.topK(criteria, 50), pool.parallelTopK(criteria, 50));
+        }
+    }
+
+    @Test
+    public void topKReturnsWholePoolWhenKIsLarger() {
+        ProfilePool small = data.pool(5, 1.0);
+        Criteria criteria = new Criteria();
+        criteria.add(new Criterion(new Answer(data.question(1), Bool.TRUE), Weight.DontCare));
+
+        assertEquals(5, small.topK(criteria, 50).size());
+    }
+
+    @Test
+    public void topKLeavesOutProfilesThatFailMustMatch() {
+        Criteria criteria = new Criteria();
+        for (int id = 1; id <= 6; id++)
+            criteria.add(new Criterion(new Answer(data.question(id), Bool.TRUE), Weight.MustMatch));
+        criteria.add(new Criterion(new Answer(data.question(7), Bool.TRUE), Weight.Important));
+        long matching = pool.profiles().stream().filter(profile -> profile.matches(criteria)).count();
+
+        List<Profile> top = pool.topK(criteria, 500);
+
+        assertEquals(Math.min(500, matching), top.size());
+        for (Profile profile : top)
+            assertTrue(profile.matches(criteria));
+    }
+
+    @Test
+    public void prunedTopKAgreesWithUnprunedRanking() {
+        for (int i = 0; i < 10; i++) {
+            Criteria criteria = data.criteria(6);
+            PruningStats stats = new PruningStats();
+
+            List<Profile> top = pool.topK(criteria, 20, stats);
+
+            assertEquals(pool.parallelScore(criteria).topK(20), top);
+            assertEquals(pool.profiles().size(), stats.profilesEvaluated());
+        }
+    }
+
+    @Test
+    public void pruningSkipsProfilesThatCannotBeatTheHeap() {
+        Criteria criteria = new Criteria();
+        criteria.add(new Criterion(new Answer(data.question(1), Bool.TRUE), Weight.VeryImportant));
+        criteria.add(new Criterion(new Answer(data.question(2), Bool.TRUE), Weight.WouldPrefer));
+        PruningStats stats = new PruningStats();
+
+        pool.topK(criteria, 5, stats);
+
+        assertTrue(stats.prunedByThreshold() > 0);
+        assertTrue(stats.criteriaSkipped() > 0);
+    }
+
+    @Test
+    public void mustMatchFailureStopsEvaluation() {
+        Criteria criteria = new Criteria();
+        criteria.add(new Criterion(new Answer(data.question(1), Bool.TRUE), Weight.MustMatch));
+        for (int id = 2; id < 8; id++)
+            criteria.add(new Criterion(new Answer(data.question(id), Bool.TRUE), Weight.Important));
+        PruningStats stats = new PruningStats();
+
+        pool.topK(criteria, pool.profiles().size(), stats);
+
+        long failing = pool.profiles().stream()
+                .filter(profile -> RandomProfiles.expectedScore(profile, criteria) == Profile.NO_MATCH
+                        && !(profile.getAnswer(1) != null && profile.getAnswer(1).getIndex() == Bool.TRUE))
+                .count();
+        assertEquals(failing, stats.rejectedByMustMatch());
+        assertEquals(failing * 6, stats.criteriaSkipped());
+    }
+
+    private static List<Long> scores(List<Profile> profiles, Criteria criteria) {
+        List<Long> scores = new ArrayList<>();
+        for (Profile profile : profiles)
+            scores.add(Math.max(0, profile.evaluate(criteria)));
+        return scores;
+    }
+}
@@ -0,0 +1,132 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.*;
+
+public class ProfileTest {
+    private Question hasBonus;
+    private Question hasRelo;
+    private Profile profile;
+    private Criteria criteria;
+
+    @Before
+    public void create() {
+        hasBonus = new BooleanQuestion(1, "Bonus?");
+        hasRelo = new BooleanQuestion(2, "Relocation package?");
+        profile = new Profile("Acme");
+        criteria = new Criteria();
+    }
+
+    @Test
+    public void mustMatchGatesWithoutAddingToScore() {
+        profile.add(new Answer(hasBonus, Bool.TRUE));
+        profile.add(new Answer(hasRelo, Bool.TRUE));
+        criteria.add(new Criterion(new Answer(hasBonus, Bool.TRUE), Weight.MustMatch));
+        criteria.add(new Criterion(new Answer(hasRelo, Bool.TRUE), Weight.Important));
+
+        assertTrue(profile.matches(criteria));
+        assertEquals(Weight.Important.getValue(), profile.score());
+    }
+
+    @Test
+    public void satisfiedMustMatchAloneScoresZero() {
+        profile.add(new Answer(hasBonus, Bool.TRUE));
+        criteria.add(new Criterion(new Answer(hasBonus, Bool.TRUE), Weight.MustMatch));
+
+        assertEquals(0, profile.evaluate(criteria));
+    }
+
+    @Test
+    public void failedMustMatchIsNoMatch() {
+        profile.add(new Answer(hasBonus, Bool.FALSE));
+        profile.add(new Answer(hasRelo, Bool.TRUE));
+        criteria.add(new Criterion(new Answer(hasBonus, Bool.TRUE), Weight.MustMatch));
+        criteria.add(new Criterion(new Answer(hasRelo, Bool.TRUE), Weight.VeryImportant));
+
+        assertEquals(Profile.NO_MATCH, profile.evaluate(criteria));
+        assertFalse(profile.matches(criteria));
+        assertEquals(0, profile.score());
+    }
+
+    @Test
+    public void accumulatesScoresPastIntRange() {
+        profile.add(new Answer(hasRelo, Bool.TRUE));
+        int count = Integer.MAX_VALUE / Weight.VeryImportant.getValue() + 10;
+        for (int i = 0; i < count; i++)
+            criteria.add(new Criterion(new Answer(hasRelo, Bool.TRUE), Weight.VeryImportant));
+
+        assertEquals((long) count * Weight.VeryImportant.getValue(), profile.evaluate(criteria));
+    }
+
+    @Test
+    public void mustMatchProfilesRankByTheirOtherMatches() {
+        ProfilePool pool = new ProfilePool();
+        Profile mustAndRelo = new Profile("must and relo");
+        mustAndRelo.add(new Answer(hasBonus, Bool.TRUE));
+        mustAndRelo.add(new Answer(hasRelo, Bool.TRUE));
+        Profile mustOnly = new Profile("must only");
+        mustOnly.add(new Answer(hasBonus, Bool.TRUE));
+        mustOnly.add(new Answer(hasRelo, Bool.FALSE));
+        pool.add(mustOnly);
+        pool.add(mustAndRelo);
+        criteria.add(new Criterion(new Answer(hasBonus, Bool.TRUE), Weight.MustMatch));
+        criteria.add(new Criterion(new Answer(hasRelo, Bool.TRUE), Weight.WouldPrefer));
+
+        pool.score(criteria);
+
+        assertEquals(Arrays.asList(mustAndRelo, mustOnly), pool.ranked());
+    }
+
+    @Test
+    public void storesAnswersToSparseLargeQuestionIds() {
+        Question far = new BooleanQuestion(Integer.MAX_VALUE, "Far?");
+        Question negative = new BooleanQuestion(-5, "Negative?");
+        profile.add(new Answer(far, Bool.TRUE));
+        profile.add(new Answer(negative, Bool.FALSE));
+        profile.add(new Answer(hasRelo, Bool.TRUE));
+
+        assertEquals(Bool.TRUE, profile.getAnswer(Integer.MAX_VALUE).getIndex());
+        assertEquals(Bool.FALSE, profile.getAnswer(-5).getIndex());
+        assertNull(profile.getAnswer(1));
+        assertEquals(3, profile.getAnswers().size());
+    }
+
+    @Test
+    public void answersComeBackInQuestionIdOrder() {
+        Random random = new Random(41);
+        for (int i = 0; i < 200; i++) {
+            int id = random.nextInt(1000);
+            profile.add(new Answer(new BooleanQuestion(id, "q" + id), random.nextInt(2)));
+        }
+
+        int previous = Integer.MIN_VALUE;
+        for (Answer answer : profile.getAnswers()) {
+            assertTrue(answer.getQuestion().getId() > previous);
+            previous = answer.getQuestion().getId();
+        }
+    }
+
+    @Test
+    public void replacesAnswerToSameQuestion() {
+        List<Answer> previous = new ArrayList<>();
+        profile.addListener((changed, before, after) -> previous.add(before));
+        profile.add(new Answer(hasBonus, Bool.TRUE));
+        Answer first = profile.getAnswer(1);
+        profile.add(new Answer(hasBonus, Bool.FALSE));
+
+        assertEquals(Bool.FALSE, profile.getAnswer(1).getIndex());
+        assertEquals(1, profile.getAnswers().size());
+        assertEquals(Arrays.asList(null, first), previous);
+    }
+}
@@ -0,0 +1,143 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.*;
+
+public class ProfileWriterTest {
+    private RandomProfiles random;
+    private Path dir;
+    private Path file;
+
+    @Before
+    public void create() throws IOException {
+        random = new RandomProfiles(23, 40);
+        dir = Files.createTempDirectory("profiles");
+        file = dir.resolve("profiles.bin");
+    }
+
+    @After
+    public void delete() throws IOException {
+        Files.deleteIfExists(file);
+        Files.delete(dir);
+    }
+
+    @Test
+    public void readsBackWhatWasWritten() throws IOException {
+        List<Profile> profiles = random.profiles(5000, 0.7);
+        write(profiles);
+
+        List<Profile> read = new ArrayList<>();
+        new ProfileReader(file, random::question).read(read::add);
+
+        assertSameProfiles(profiles, read);
+    }
+
+    @Test
+    public void parallelReadKeepsFileOrder() throws IOException {
+        List<Profile> profiles = random.profiles(5000, 0.7);
+        write(profiles);
+
+        ProfilePool pool = new ProfilePool();
+        new ProfileReader(file, random::question).readInto(pool, 4);
+
+        assertSameProfiles(profiles, pool.profiles());
+    }
+
+    @Test
+    public void fillsBlocksBeforeStartingNewOnes() throws IOException {
+        List<Profile> profiles = random.profiles(5000, 0.7);
+        write(profiles);
+
+        long bytes = Files.size(file) - ProfileWriter.FILE_HEADER;
+        List<Integer> lengths = blockLengths();
+        assertEquals((bytes + ProfileWriter.BLOCK_SIZE - 1) / ProfileWriter.BLOCK_SIZE, lengths.size());
+        for (int length : lengths.subList(0, lengths.size() - 1))
+            assertTrue(length > ProfileWriter.BLOCK_SIZE - ProfileWriter.BLOCK_HEADER - 500);
+    }
+
+    @Test
+    public void oversizedRecordGetsABlockOfItsOwn() throws IOException {
+        Question[] questions = new Question[20000];
+        for (int id = 0; id < questions.length; id++)
+            questions[id] = new BooleanQuestion(id, "q" + id);
+        Profile large = new Profile("large");
+        for (Question question : questions)
+            large.add(new Answer(question, Bool.TRUE));
+        Profile small = new Profile("small");
+        small.add(new Answer(questions[3], Bool.FALSE));
+        List<Profile> profiles = Arrays.asList(small, large, small, small);
+        write(profiles);
+
+        List<Profile> read = new ArrayList<>();
+        new ProfileReader(file, id -> questions[id]).read(read::add);
+
+        assertSameProfiles(profiles, read);
+        assertEquals(3, blockLengths().size());
+    }
+
+    @Test
+    public void rejectsChoicesThatDoNotFitAByte() throws IOException {
+        String[] choices = new String[200];
+        Arrays.fill(choices, "x");
+        Profile profile = new Profile("wide");
+        profile.add(new Answer(new PercentileQuestion(1, "wide", choices), 150));
+
+        try (ProfileWriter writer = new ProfileWriter(file)) {
+            writer.write(profile);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsFileWithoutMagic() throws IOException {
+        Files.write(file, new byte[ProfileWriter.FILE_HEADER]);
+
+        new ProfileReader(file, random::question).read(profile -> {});
+    }
+
+    private void write(List<Profile> profiles) throws IOException {
+        try (ProfileWriter writer = new ProfileWriter(file)) {
+            for (Profile profile : profiles)
+                writer.write(profile);
+        }
+    }
+
+    private List<Integer> blockLengths() throws IOException {
+        List<Integer> lengths = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file)) {
+            ByteBuffer header = ByteBuffer.allocate(ProfileWriter.BLOCK_HEADER);
+            long position = ProfileWriter.FILE_HEADER;
+            while (position < channel.size()) {
+                header.clear();
+                channel.read(header, position);
+                lengths.add(header.getInt(0));
+                position += ProfileWriter.BLOCK_HEADER + header.getInt(0);
+            }
+        }
+        return lengths;
+    }
+
+    private void assertSameProfiles(List<Profile> expected, List<Profile> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getName(), actual.get(i).getName());
+            assertEquals(expected.get(i).getAnswers().toString(), actual.get(i).getAnswers().toString());
+        }
+    }
+}
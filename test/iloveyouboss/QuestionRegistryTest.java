@@ -0,0 +1,65 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.*;
+
+public class QuestionRegistryTest {
+    private QuestionRegistry registry;
+
+    @Before
+    public void create() {
+        registry = new QuestionRegistry();
+    }
+
+    @Test
+    public void internReturnsTheFirstInstance() {
+        Question first = registry.intern(new BooleanQuestion(7, "Bonus?"));
+
+        assertSame(first, registry.intern(new BooleanQuestion(7, "Bonus?")));
+        assertSame(first, registry.get(7));
+        assertEquals(1, registry.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsDifferentTextForSameId() {
+        registry.intern(new BooleanQuestion(7, "Bonus?"));
+        registry.intern(new BooleanQuestion(7, "Relocation?"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsDifferentKindForSameId() {
+        registry.intern(new BooleanQuestion(7, "Bonus?"));
+        registry.intern(new PercentileQuestion(7, "Bonus?", new String[]{"a", "b"}));
+    }
+
+    @Test
+    public void keepsRegistrationOrder() {
+        Question second = registry.intern(new BooleanQuestion(9, "b"));
+        Question first = registry.intern(new BooleanQuestion(2, "a"));
+
+        assertEquals(Arrays.asList(second, first), registry.questions());
+    }
+
+    @Test
+    public void answersByChoiceText() {
+        registry.intern(new PercentileQuestion(3, "Size?", new String[]{"small", "medium", "large"}));
+
+        assertEquals(1, registry.answer(3, "medium").getIndex());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void answerToUnknownQuestionFails() {
+        registry.answer(3, "medium");
+    }
+}
@@ -0,0 +1,83 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.*;
+
+import util.*;
+
+public class QuestionSuffixIndexTest {
+    private static final String[] WORDS = {"bonus", "relocation", "package", "remote", "travel", "team", "size"};
+    private Random random = new Random(73);
+    private List<Question> questions;
+    private QuestionSuffixIndex index;
+
+    @Before
+    public void create() {
+        questions = new ArrayList<>();
+        for (int id = 0; id < 500; id++) {
+            StringBuilder text = new StringBuilder();
+            for (int word = 0; word < 1 + random.nextInt(3); word++)
+                text.append(WORDS[random.nextInt(WORDS.length)]).append(word == 0 ? " " : "?");
+            questions.add(new BooleanQuestion(id, text.toString()));
+        }
+        index = new QuestionSuffixIndex(questions);
+    }
+
+    @Test
+    public void endingWithAgreesWithStringScan() {
+        List<String> patterns = new ArrayList<>(Arrays.asList("", "?", "e?", "travel?", "size ", "nothing"));
+        for (Question question : questions.subList(0, 20)) {
+            String text = question.getText();
+            patterns.add(text.substring(random.nextInt(text.length())));
+        }
+
+        for (String pattern : patterns)
+            assertEquals(pattern, scan(pattern), index.endingWith(pattern));
+    }
+
+    @Test
+    public void looksUpQuestionsById() {
+        assertEquals(500, index.size());
+        assertSame(questions.get(42), index.question(42));
+    }
+
+    @Test
+    public void personLookupAgreesWithUnindexedLookup() {
+        Person person = new Person();
+        for (int i = 0; i < 100; i++)
+            person.add(questions.get(random.nextInt(questions.size())));
+
+        for (String pattern : new String[]{"?", "team?", "bonus ", "l?"})
+            assertEquals(person.withCharacteristic(pattern), person.withCharacteristic(pattern, index));
+    }
+
+    @Test
+    public void personIdsFollowAddsAfterARead() {
+        Person person = new Person();
+        person.add(questions.get(7));
+        assertEquals(IntSet.of(7), person.getCharacteristicIds());
+
+        person.add(questions.get(3));
+        person.add(questions.get(7));
+
+        assertEquals(IntSet.of(3, 7), person.getCharacteristicIds());
+    }
+
+    private IntSet scan(String pattern) {
+        return IntSet.of(questions.stream()
+                .filter(question -> question.getText().endsWith(pattern))
+                .mapToInt(Question::getId)
+                .toArray());
+    }
+}
@@ -0,0 +1,95 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import java.util.*;
+
+// seeded questions, profiles and criteria for tests that compare scoring paths
+class RandomProfiles {
+    private final Random random;
+    private final Question[] questions;
+
+    RandomProfiles(long seed, int questionCount) {
+        random = new Random(seed);
+        questions = new Question[questionCount];
+        for (int i = 0; i < questionCount; i++)
+            questions[i] = i % 3 == 0
+                    ? new PercentileQuestion(i, "percentile " + i, new String[]{"a", "b", "c", "d"})
+                    : new BooleanQuestion(i, "boolean " + i);
+    }
+
+    Question question(int id) {
+        return questions[id];
+    }
+
+    Question[] questions() {
+        return questions;
+    }
+
+    Random random() {
+        return random;
+    }
+
+    Profile profile(String name, double answerRate) {
+        Profile profile = new Profile(name);
+        for (Question question : questions)
+            if (random.nextDouble() < answerRate)
+                profile.add(answer(question));
+        return profile;
+    }
+
+    List<Profile> profiles(int count, double answerRate) {
+        List<Profile> profiles = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+            profiles.add(profile("profile " + i, answerRate));
+        return profiles;
+    }
+
+    ProfilePool pool(int count, double answerRate) {
+        ProfilePool pool = new ProfilePool();
+        profiles(count, answerRate).forEach(pool::add);
+        return pool;
+    }
+
+    Answer answer(Question question) {
+        return new Answer(question, random.nextInt(question.getAnswerChoiceCount()));
+    }
+
+    Criteria criteria(int count, Weight... weights) {
+        Criteria criteria = new Criteria();
+        for (int i = 0; i < count; i++) {
+            Question question = questions[random.nextInt(questions.length)];
+            criteria.add(new Criterion(answer(question), weights[random.nextInt(weights.length)]));
+        }
+        return criteria;
+    }
+
+    Criteria criteria(int count) {
+        return criteria(count, Weight.values());
+    }
+
+    // score and match as the original one-profile-at-a-time algorithm defines them
+    static long expectedScore(Profile profile, Criteria criteria) {
+        long score = 0;
+        boolean anyMatches = false;
+        for (Criterion criterion : criteria) {
+            Answer answer = profile.getAnswer(criterion.getAnswer().getQuestion().getId());
+            boolean match = criterion.getWeight() == Weight.DontCare ||
+                    (answer != null && answer.match(criterion.getAnswer()));
+            if (!match && criterion.getWeight() == Weight.MustMatch)
+                return Profile.NO_MATCH;
+            if (match) {
+                anyMatches = true;
+                if (criterion.getWeight() != Weight.MustMatch && criterion.getWeight() != Weight.DontCare)
+                    score += criterion.getWeight().getValue();
+            }
+        }
+        return anyMatches ? score : Profile.NO_MATCH;
+    }
+}
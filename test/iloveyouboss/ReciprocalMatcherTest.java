@@ -0,0 +1,129 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.stream.*;
+
+import org.junit.*;
+
+public class ReciprocalMatcherTest {
+    private RandomProfiles random;
+    private List<Profile> profiles;
+    private List<Criteria> wants;
+
+    @Before
+    public void create() {
+        random = new RandomProfiles(83, 20);
+        profiles = random.profiles(400, 0.8);
+        wants = new ArrayList<>();
+        for (int i = 0; i < profiles.size(); i++)
+            wants.add(random.criteria(5, Weight.VeryImportant, Weight.Important, Weight.WouldPrefer));
+    }
+
+    @Test
+    public void mutualScoreIsGeometricMeanOfSatisfactions() {
+        ReciprocalMatcher matcher = new ReciprocalMatcher(profiles, wants);
+
+        for (int a = 0; a < 20; a++)
+            for (int b = 0; b < 20; b++) {
+                double first = satisfaction(a, b);
+                double second = satisfaction(b, a);
+                assertEquals(first, matcher.satisfaction(a, b), 1e-12);
+                assertEquals(Math.sqrt(first * second), matcher.mutualScore(a, b), 1e-12);
+            }
+    }
+
+    @Test
+    public void topMatchesAreBestFirstWithTheirMutualScores() {
+        ReciprocalMatcher matcher = new ReciprocalMatcher(profiles, wants);
+
+        List<List<ReciprocalMatcher.Match>> all = matcher.topMatches(10);
+
+        assertEquals(profiles.size(), all.size());
+        for (int row = 0; row < profiles.size(); row++) {
+            List<ReciprocalMatcher.Match> top = all.get(row);
+            assertTrue(top.size() <= 10);
+            for (int rank = 0; rank < top.size(); rank++) {
+                ReciprocalMatcher.Match match = top.get(rank);
+                assertNotSame(profiles.get(row), match.getProfile());
+                assertEquals(matcher.mutualScore(row, rowOf(match.getProfile())), match.getScore(), 0.0);
+                assertTrue(match.getScore() > 0);
+                if (rank > 0) assertTrue(top.get(rank - 1).getScore() >= match.getScore());
+            }
+        }
+    }
+
+    @Test
+    public void batchAgreesWithSingleRowQueries() {
+        ReciprocalMatcher matcher = new ReciprocalMatcher(profiles, wants);
+
+        List<List<ReciprocalMatcher.Match>> all = matcher.topMatches(5);
+
+        for (int row = 0; row < profiles.size(); row += 37)
+            assertEquals(all.get(row).toString(), matcher.topMatches(row, 5).toString());
+    }
+
+    @Test
+    public void smallMustMatchBlockIsSearchedExhaustively() {
+        for (int i = 0; i < wants.size(); i++) {
+            Criteria criteria = new Criteria();
+            criteria.add(new Criterion(new Answer(random.question(1), Bool.TRUE), Weight.MustMatch));
+            criteria.add(new Criterion(new Answer(random.question(2), Bool.TRUE), Weight.MustMatch));
+            wants.get(i).forEach(criteria::add);
+            wants.set(i, criteria);
+        }
+        ReciprocalMatcher matcher = new ReciprocalMatcher(profiles, wants, 16, 4, profiles.size());
+
+        for (int row = 0; row < profiles.size(); row += 23) {
+            List<ReciprocalMatcher.Match> top = matcher.topMatches(row, 8);
+            for (ReciprocalMatcher.Match match : top) {
+                assertEquals(Bool.TRUE, match.getProfile().getAnswer(1).getIndex());
+                assertEquals(Bool.TRUE, match.getProfile().getAnswer(2).getIndex());
+            }
+            assertEquals(bruteForce(matcher, row, 8), top.stream().map(ReciprocalMatcher.Match::getScore)
+                    .collect(Collectors.toList()));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void requiresCriteriaForEveryProfile() {
+        new ReciprocalMatcher(profiles, wants.subList(1, wants.size()));
+    }
+
+    private double satisfaction(int wanter, int candidate) {
+        Criteria criteria = wants.get(wanter);
+        long score = RandomProfiles.expectedScore(profiles.get(candidate), criteria);
+        if (score == Profile.NO_MATCH) return 0;
+        long possible = 0;
+        for (Criterion criterion : criteria)
+            if (criterion.getWeight() != Weight.MustMatch)
+                possible += criterion.getWeight().getValue();
+        return possible == 0 ? 1 : (double) score / possible;
+    }
+
+    private List<Double> bruteForce(ReciprocalMatcher matcher, int row, int k) {
+        return IntStream.range(0, profiles.size())
+                .filter(other -> other != row)
+                .mapToDouble(other -> matcher.mutualScore(row, other))
+                .filter(score -> score > 0)
+                .boxed()
+                .sorted(Comparator.reverseOrder())
+                .limit(k)
+                .collect(Collectors.toList());
+    }
+
+    private int rowOf(Profile profile) {
+        for (int row = 0; row < profiles.size(); row++)
+            if (profiles.get(row) == profile) return row;
+        throw new AssertionError(profile);
+    }
+}
@@ -0,0 +1,84 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import static org.junit.Assert.*;
+
+import org.junit.*;
+
+public class ScoreCollectionTest {
+    private ScoreCollection collection;
+
+    @Before
+    public void create() {
+        collection = new ScoreCollection();
+    }
+
+    @Test
+    public void answersArithmeticMeanOfTwoNumbers() {
+        collection.add(() -> 5);
+        collection.add(() -> 7);
+
+        assertEquals(6.0, collection.arithmeticMean(), 0.0);
+    }
+
+    @Test
+    public void meanIsNotTruncated() {
+        collection.add(() -> 5);
+        collection.add(() -> 6);
+
+        assertEquals(5.5, collection.arithmeticMean(), 0.0);
+    }
+
+    @Test
+    public void averagesNegativeScores() {
+        collection.add(() -> -5);
+        collection.add(() -> 5);
+
+        assertEquals(0.0, collection.arithmeticMean(), 0.0);
+    }
+
+    @Test
+    public void meanOfNothingIsZero() {
+        assertEquals(0.0, collection.arithmeticMean(), 0.0);
+    }
+
+    @Test
+    public void doesNotOverflowOnLargeScores() {
+        collection.add(() -> Integer.MAX_VALUE);
+        collection.add(() -> Integer.MAX_VALUE);
+
+        assertEquals(Integer.MAX_VALUE, collection.arithmeticMean(), 0.0);
+        assertEquals(2L * Integer.MAX_VALUE, collection.statistics().sum());
+    }
+
+    @Test
+    public void takesScoreWhenAdded() {
+        int[] score = {4};
+        collection.add(() -> score[0]);
+        score[0] = 100;
+
+        assertEquals(4.0, collection.arithmeticMean(), 0.0);
+    }
+
+    @Test
+    public void statisticsAreASnapshot() {
+        collection.add(() -> 1);
+        ScoreStatistics statistics = collection.statistics();
+        collection.add(() -> 3);
+
+        assertEquals(1, statistics.count());
+        assertEquals(2, collection.statistics().count());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void throwsExceptionWhenAddingNull() {
+        collection.add(null);
+    }
+}
@@ -0,0 +1,138 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.stream.*;
+
+import org.junit.*;
+
+public class ScoreStatisticsTest {
+    private Random random = new Random(31);
+    private long[] scores;
+
+    @Before
+    public void create() {
+        scores = new long[10000];
+        for (int i = 0; i < scores.length; i++)
+            scores[i] = 1 + random.nextInt(100000);
+    }
+
+    @Test
+    public void matchesTwoPassStatistics() {
+        ScoreStatistics statistics = statistics(scores, 0, scores.length);
+
+        double mean = LongStream.of(scores).average().getAsDouble();
+        double variance = LongStream.of(scores).mapToDouble(s -> (s - mean) * (s - mean)).sum() / scores.length;
+        double logMean = LongStream.of(scores).mapToDouble(Math::log).sum() / scores.length;
+        assertEquals(scores.length, statistics.count());
+        assertEquals(LongStream.of(scores).sum(), statistics.sum());
+        assertEquals(mean, statistics.arithmeticMean(), 1e-6);
+        assertEquals(variance, statistics.variance(), variance * 1e-9);
+        assertEquals(Math.exp(logMean), statistics.geometricMean(), 1e-6);
+        assertEquals(LongStream.of(scores).min().getAsLong(), statistics.min());
+        assertEquals(LongStream.of(scores).max().getAsLong(), statistics.max());
+    }
+
+    @Test
+    public void mergedPartsEqualTheWhole() {
+        ScoreStatistics whole = statistics(scores, 0, scores.length);
+        ScoreStatistics merged = statistics(scores, 0, 3000);
+        merged.merge(statistics(scores, 3000, 3001));
+        merged.merge(new ScoreStatistics());
+        merged.merge(statistics(scores, 3001, scores.length));
+
+        assertEquals(whole.count(), merged.count());
+        assertEquals(whole.sum(), merged.sum());
+        assertEquals(whole.arithmeticMean(), merged.arithmeticMean(), 1e-6);
+        assertEquals(whole.variance(), merged.variance(), whole.variance() * 1e-9);
+        assertEquals(whole.geometricMean(), merged.geometricMean(), 1e-6);
+        assertEquals(whole.quantile(0.5), merged.quantile(0.5));
+    }
+
+    @Test
+    public void quantilesAreWithinHistogramPrecision() {
+        ScoreStatistics statistics = statistics(scores, 0, scores.length);
+        long[] sorted = scores.clone();
+        Arrays.sort(sorted);
+
+        for (double q : new double[]{0.01, 0.25, 0.5, 0.9, 0.99}) {
+            long exact = sorted[(int) Math.ceil(q * sorted.length) - 1];
+            assertEquals(exact, statistics.quantile(q), exact / 32.0);
+        }
+    }
+
+    @Test
+    public void geometricMeanWithZeroIsZero() {
+        ScoreStatistics statistics = new ScoreStatistics();
+        statistics.add(0);
+        statistics.add(100);
+
+        assertEquals(0.0, statistics.geometricMean(), 0.0);
+    }
+
+    @Test
+    public void collectorAgreesWithAdd() {
+        List<Scoreable> scoreables = LongStream.of(scores).mapToObj(s -> (Scoreable) () -> (int) s)
+                .collect(Collectors.toList());
+
+        ScoreStatistics collected = scoreables.parallelStream().collect(ScoreStatistics.collector());
+
+        assertEquals(LongStream.of(scores).sum(), collected.sum());
+        assertEquals(scores.length, collected.count());
+    }
+
+    @Test
+    public void negativeScoresCountTowardMeanAndVariance() {
+        ScoreStatistics statistics = new ScoreStatistics();
+        statistics.add(-5);
+        statistics.add(5);
+
+        assertEquals(2, statistics.count());
+        assertEquals(0, statistics.sum());
+        assertEquals(0.0, statistics.arithmeticMean(), 0.0);
+        assertEquals(25.0, statistics.variance(), 1e-9);
+        assertEquals(-5, statistics.min());
+        assertEquals(5, statistics.max());
+        assertEquals(1, statistics.negatives());
+    }
+
+    @Test
+    public void negativeScoresAreLeftOutOfGeometricMeanAndQuantiles() {
+        ScoreStatistics statistics = new ScoreStatistics();
+        statistics.add(-100);
+        statistics.add(8);
+
+        assertTrue(Double.isNaN(statistics.geometricMean()));
+        assertEquals(8, statistics.quantile(0.0));
+    }
+
+    @Test
+    public void mergeKeepsNegativeScores() {
+        ScoreStatistics left = new ScoreStatistics();
+        left.add(3);
+        ScoreStatistics right = new ScoreStatistics();
+        right.add(-7);
+
+        left.merge(right);
+
+        assertEquals(-4, left.sum());
+        assertEquals(-7, left.min());
+        assertEquals(1, left.negatives());
+    }
+
+    private ScoreStatistics statistics(long[] scores, int from, int to) {
+        ScoreStatistics statistics = new ScoreStatistics();
+        for (int i = from; i < to; i++)
+            statistics.add(scores[i]);
+        return statistics;
+    }
+}
@@ -0,0 +1,134 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package iloveyouboss;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+
+import org.junit.*;
+
+public class ShardedProfilePoolTest {
+    private RandomProfiles random;
+    private List<Profile> profiles;
+    private ProfilePool single;
+    private ShardedProfilePool sharded;
+
+    @Before
+    public void create() {
+        random = new RandomProfiles(59, 25);
+        profiles = random.profiles(3000, 0.6);
+        single = new ProfilePool();
+        sharded = new ShardedProfilePool(4);
+        for (Profile profile : profiles) {
+            single.add(profile);
+            sharded.add(profile);
+        }
+    }
+
+    @Test
+    public void spreadsProfilesAcrossShards() {
+        assertEquals(profiles.size(), sharded.size());
+        for (int shard = 0; shard < sharded.shardCount(); shard++)
+            assertTrue(sharded.shard(shard).size() > 0);
+    }
+
+    @Test
+    public void mergedRankingHasTheSingleRankingsScores() {
+        for (int i = 0; i < 20; i++) {
+            Criteria criteria = random.criteria(6);
+
+            List<Profile> top = sharded.topK(criteria, 50);
+
+            assertEquals(scores(single.scoredTopK(criteria, 50)), top.stream()
+                    .map(profile -> RandomProfiles.expectedScore(profile, criteria))
+                    .collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void oneShardAgreesExactly() {
+        ShardedProfilePool one = new ShardedProfilePool(1);
+        profiles.forEach(one::add);
+        Criteria criteria = random.criteria(6);
+
+        assertEquals(single.topK(criteria, 40), one.topK(criteria, 40));
+    }
+
+    @Test
+    public void scoredTopKCarriesEachProfilesScore() {
+        Criteria criteria = random.criteria(6);
+
+        List<ScoredProfile> top = single.scoredTopK(criteria, 30);
+
+        assertEquals(single.topK(criteria, 30), top.stream().map(ScoredProfile::profile).collect(Collectors.toList()));
+        for (ScoredProfile scored : top)
+            assertEquals(RandomProfiles.expectedScore(scored.profile(), criteria), scored.score());
+    }
+
+    @Test
+    public void acceptsShardsImplementedOutsideThePool() {
+        Profile remote = new Profile("remote");
+        Shard fixed = new Shard() {
+            @Override
+            public void add(Profile profile) {
+            }
+
+            @Override
+            public int size() {
+                return 1;
+            }
+
+            @Override
+            public List<ScoredProfile> topK(Criteria criteria, int k) {
+                return Collections.singletonList(new ScoredProfile(remote, Long.MAX_VALUE));
+            }
+        };
+        ShardedProfilePool pool = new ShardedProfilePool(Arrays.asList(new LocalShard(single), fixed),
+                ForkJoinPool.commonPool());
+
+        List<Profile> top = pool.topK(random.criteria(6), 5);
+
+        assertEquals(remote, top.get(0));
+        assertEquals(5, top.size());
+    }
+
+    @Test
+    public void recordsLatencyPerShard() {
+        sharded.topK(random.criteria(6), 10);
+        sharded.topK(random.criteria(6), 10);
+
+        assertEquals(2, sharded.queries());
+        for (int shard = 0; shard < sharded.shardCount(); shard++) {
+            assertTrue(sharded.lastLatency(shard, TimeUnit.NANOSECONDS) > 0);
+            assertTrue(sharded.totalLatency(shard, TimeUnit.NANOSECONDS) >= sharded.lastLatency(shard, TimeUnit.NANOSECONDS));
+        }
+        int slowest = sharded.slowestShard();
+        for (int shard = 0; shard < sharded.shardCount(); shard++)
+            assertTrue(sharded.lastLatency(slowest, TimeUnit.NANOSECONDS) >= sharded.lastLatency(shard, TimeUnit.NANOSECONDS));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shardFailureReachesTheCaller() {
+        Shard failing = new LocalShard() {
+            @Override
+            public List<ScoredProfile> topK(Criteria criteria, int k) {
+                throw new IllegalStateException("shard down");
+            }
+        };
+        new ShardedProfilePool(Arrays.asList(new LocalShard(single), failing), ForkJoinPool.commonPool())
+                .topK(random.criteria(3), 5);
+    }
+
+    private List<Long> scores(List<ScoredProfile> top) {
+        return top.stream().map(ScoredProfile::score).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,62 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package util;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.*;
+
+public class AtomicLogHistogramTest {
+    @Test
+    public void snapshotMatchesPlainHistogram() {
+        Random random = new Random(67);
+        AtomicLogHistogram atomic = new AtomicLogHistogram();
+        LogHistogram plain = new LogHistogram();
+        for (int i = 0; i < 10000; i++) {
+            long value = random.nextInt(1000000);
+            atomic.record(value);
+            plain.record(value);
+        }
+
+        LogHistogram snapshot = atomic.snapshot();
+
+        assertEquals(plain.count(), snapshot.count());
+        for (double q : new double[]{0.1, 0.5, 0.99})
+            assertEquals(plain.quantile(q), snapshot.quantile(q), plain.quantile(q) / 32.0);
+    }
+
+    @Test
+    public void countsEveryRecordFromManyThreads() throws InterruptedException {
+        AtomicLogHistogram histogram = new AtomicLogHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10000; i++)
+                    histogram.record(i);
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        assertEquals(40000, histogram.snapshot().count());
+    }
+
+    @Test
+    public void resetEmptiesTheHistogram() {
+        AtomicLogHistogram histogram = new AtomicLogHistogram();
+        histogram.record(5);
+
+        histogram.reset();
+
+        assertEquals(0, histogram.snapshot().count());
+    }
+}
@@ -0,0 +1,93 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package util;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.stream.*;
+
+import org.junit.*;
+
+public class BoundedScoreHeapTest {
+    private Random random = new Random(3);
+
+    @Test
+    public void keepsTheBestScoresWithLowerRowsWinningTies() {
+        long[] scores = new long[1000];
+        for (int row = 0; row < scores.length; row++)
+            scores[row] = random.nextInt(50);
+        BoundedScoreHeap heap = new BoundedScoreHeap(25);
+
+        for (int row = 0; row < scores.length; row++)
+            heap.offer(scores[row], row);
+
+        assertArrayEquals(bestRows(scores, 25), heap.ranked());
+    }
+
+    @Test
+    public void holdsEverythingWhenUnderCapacity() {
+        BoundedScoreHeap heap = new BoundedScoreHeap(10);
+        heap.offer(5, 0);
+        heap.offer(7, 1);
+        heap.offer(5, 2);
+
+        assertFalse(heap.isFull());
+        assertEquals(5, heap.minScore());
+        assertArrayEquals(new int[]{1, 0, 2}, heap.ranked());
+    }
+
+    @Test
+    public void zeroCapacityKeepsNothing() {
+        BoundedScoreHeap heap = new BoundedScoreHeap(0);
+        heap.offer(1, 0);
+
+        assertEquals(0, heap.size());
+        assertArrayEquals(new int[0], heap.ranked());
+    }
+
+    @Test
+    public void mergedHeapsMatchOneHeapOverAllRows() {
+        long[] scores = new long[500];
+        for (int row = 0; row < scores.length; row++)
+            scores[row] = random.nextInt(20);
+        BoundedScoreHeap left = new BoundedScoreHeap(30);
+        BoundedScoreHeap right = new BoundedScoreHeap(30);
+        for (int row = 0; row < scores.length; row++)
+            (row < 200 ? left : right).offer(scores[row], row);
+
+        left.merge(right);
+
+        assertArrayEquals(bestRows(scores, 30), left.ranked());
+    }
+
+    @Test
+    public void rankedDoesNotEmptyTheHeap() {
+        BoundedScoreHeap heap = new BoundedScoreHeap(3);
+        heap.offer(1, 0);
+        heap.offer(2, 1);
+
+        heap.ranked();
+
+        assertEquals(2, heap.size());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void emptyHeapHasNoMinimum() {
+        new BoundedScoreHeap(3).minScore();
+    }
+
+    private static int[] bestRows(long[] scores, int k) {
+        return IntStream.range(0, scores.length).boxed()
+                .sorted((a, b) -> scores[a] != scores[b] ? Long.compare(scores[b], scores[a]) : Integer.compare(a, b))
+                .limit(k)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+}
@@ -0,0 +1,70 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package util;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.stream.*;
+
+import org.junit.*;
+
+public class IntSetTest {
+    private Random random = new Random(71);
+
+    @Test
+    public void ofSortsAndRemovesDuplicates() {
+        assertArrayEquals(new int[]{1, 3, 9}, IntSet.of(9, 3, 1, 3).toArray());
+        assertSame(IntSet.EMPTY, IntSet.of());
+    }
+
+    @Test
+    public void withAddsInOrder() {
+        IntSet set = IntSet.of(2, 8).with(5).with(-1);
+
+        assertArrayEquals(new int[]{-1, 2, 5, 8}, set.toArray());
+        assertSame(set, set.with(5));
+    }
+
+    @Test
+    public void builderAgreesWithTreeSet() {
+        IntSet.Builder builder = new IntSet.Builder();
+        TreeSet<Integer> expected = new TreeSet<>();
+        for (int i = 0; i < 1000; i++) {
+            int value = random.nextInt(300) - 150;
+            builder.add(value);
+            expected.add(value);
+        }
+
+        assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), builder.build().toArray());
+    }
+
+    @Test
+    public void intersectAgreesWithRetainAll() {
+        for (int round = 0; round < 100; round++) {
+            int[] left = random.ints(random.nextInt(50), 0, 100).toArray();
+            int[] right = random.ints(random.nextInt(50), 0, 100).toArray();
+            Set<Integer> expected = IntStream.of(left).boxed().collect(Collectors.toCollection(TreeSet::new));
+            expected.retainAll(IntStream.of(right).boxed().collect(Collectors.toSet()));
+
+            IntSet intersection = IntSet.of(left).intersect(IntSet.of(right));
+
+            assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), intersection.toArray());
+        }
+    }
+
+    @Test
+    public void containsOnlyMembers() {
+        IntSet set = IntSet.of(4, 16, 64);
+
+        assertTrue(set.contains(16));
+        assertFalse(set.contains(15));
+        assertEquals(IntSet.of(64, 4, 16), set);
+    }
+}
@@ -0,0 +1,76 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package util;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.*;
+
+public class LogHistogramTest {
+    @Test
+    public void bucketsCoverEveryValueOnce() {
+        for (int bucket = 0; bucket < LogHistogram.BUCKETS - 1; bucket++) {
+            long low = LogHistogram.lowestValueIn(bucket);
+            long high = LogHistogram.highestValueIn(bucket);
+            assertEquals(bucket, LogHistogram.bucketOf(low));
+            assertEquals(bucket, LogHistogram.bucketOf(high));
+            assertEquals(high + 1, LogHistogram.lowestValueIn(bucket + 1));
+        }
+        assertEquals(LogHistogram.BUCKETS - 1, LogHistogram.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        LogHistogram histogram = new LogHistogram();
+        for (int value = 0; value < 10; value++)
+            histogram.record(value);
+
+        assertEquals(0, histogram.quantile(0.0));
+        assertEquals(4, histogram.quantile(0.5));
+        assertEquals(9, histogram.quantile(1.0));
+    }
+
+    @Test
+    public void relativeErrorIsBounded() {
+        Random random = new Random(37);
+        for (int i = 0; i < 10000; i++) {
+            long value = (random.nextLong() >>> 1) >>> random.nextInt(63);
+            int bucket = LogHistogram.bucketOf(value);
+            long width = LogHistogram.highestValueIn(bucket) - LogHistogram.lowestValueIn(bucket);
+            assertTrue(width <= value >>> LogHistogram.SUB_BUCKET_BITS);
+        }
+    }
+
+    @Test
+    public void mergeAddsCounts() {
+        LogHistogram left = new LogHistogram();
+        LogHistogram right = new LogHistogram();
+        left.record(10, 3);
+        right.record(1000);
+
+        left.merge(right);
+
+        assertEquals(4, left.count());
+        assertEquals(10, left.min());
+        assertEquals(1000, left.max());
+        assertEquals(10, left.quantile(0.75));
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void emptyHistogramHasNoQuantiles() {
+        new LogHistogram().quantile(0.5);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeValues() {
+        new LogHistogram().record(-1);
+    }
+}
@@ -0,0 +1,123 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package util;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.*;
+
+public class OffHeapSparseArrayTest {
+    private Random random = new Random(17);
+    private TreeMap<Integer, Long> expected;
+    private Path dir;
+
+    @Before
+    public void create() throws IOException {
+        expected = new TreeMap<>();
+        dir = Files.createTempDirectory("sparse");
+    }
+
+    @After
+    public void delete() throws IOException {
+        for (File file : dir.toFile().listFiles())
+            Files.delete(file.toPath());
+        Files.delete(dir);
+    }
+
+    @Test
+    public void matchesTreeMapUnderRandomOperations() throws InvariantException {
+        OffHeapSparseArray array = new OffHeapSparseArray(4);
+
+        apply(array, 20000);
+
+        array.checkInvariants();
+        assertContents(array);
+    }
+
+    @Test
+    public void reopenedFileKeepsItsEntries() throws IOException, InvariantException {
+        Path file = dir.resolve("array.bin");
+        try (OffHeapSparseArray array = OffHeapSparseArray.open(file)) {
+            apply(array, 5000);
+        }
+
+        try (OffHeapSparseArray array = OffHeapSparseArray.open(file)) {
+            array.checkInvariants();
+            assertContents(array);
+            apply(array, 5000);
+        }
+
+        try (OffHeapSparseArray array = OffHeapSparseArray.open(file)) {
+            assertContents(array);
+        }
+    }
+
+    @Test
+    public void fileGrowsPastInitialCapacity() throws IOException {
+        Path file = dir.resolve("grow.bin");
+        try (OffHeapSparseArray array = OffHeapSparseArray.open(file)) {
+            for (int key = 0; key < OffHeapSparseArray.INITIAL_SIZE * 3; key++)
+                array.put(key, -key);
+        }
+
+        try (OffHeapSparseArray array = OffHeapSparseArray.open(file)) {
+            assertEquals(OffHeapSparseArray.INITIAL_SIZE * 3, array.size());
+            assertEquals(-100L, array.get(100));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsForeignFile() throws IOException {
+        Path file = dir.resolve("foreign.bin");
+        Files.write(file, new byte[64]);
+
+        OffHeapSparseArray.open(file);
+    }
+
+    @Test
+    public void missingValueIsNotStored() {
+        OffHeapSparseArray array = new OffHeapSparseArray();
+        array.put(1, OffHeapSparseArray.MISSING);
+
+        assertEquals(0, array.size());
+        assertEquals(OffHeapSparseArray.MISSING, array.get(1));
+    }
+
+    private void apply(OffHeapSparseArray array, int operations) {
+        for (int i = 0; i < operations; i++) {
+            int key = random.nextInt(3000) - 1500;
+            switch (random.nextInt(4)) {
+                case 0:
+                case 1:
+                    long value = random.nextLong();
+                    if (value == OffHeapSparseArray.MISSING) value = 0;
+                    array.put(key, value);
+                    expected.put(key, value);
+                    break;
+                case 2:
+                    Long removed = expected.remove(key);
+                    assertEquals(removed == null ? OffHeapSparseArray.MISSING : removed, array.remove(key));
+                    break;
+                default:
+                    Long stored = expected.get(key);
+                    assertEquals(stored == null ? OffHeapSparseArray.MISSING : stored, array.get(key));
+            }
+        }
+    }
+
+    private void assertContents(OffHeapSparseArray array) {
+        assertEquals(expected.size(), array.size());
+        for (Map.Entry<Integer, Long> entry : expected.entrySet())
+            assertEquals((long) entry.getValue(), array.get(entry.getKey()));
+    }
+}
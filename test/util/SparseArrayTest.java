@@ -0,0 +1,94 @@
+/***
+ * Excerpted from "Pragmatic Unit Testing in Java with JUnit",
+ * published by The Pragmatic Bookshelf.
+ * Copyrights apply to this code. It may not be used to create training material,
+ * courses, books, articles, and the like. Contact us if you are in doubt.
+ * We make no guarantees that this code is fit for any purpose.
+ * Visit http://www.pragmaticprogrammer.com/titles/utj2 for more book information.
+ ***/
+package util;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.*;
+
+public class SparseArrayTest {
+    private Random random = new Random(11);
+    private SparseArray<Integer> array;
+    private TreeMap<Integer, Integer> expected;
+
+    @Before
+    public void create() {
+        array = new SparseArray<>(0);
+        expected = new TreeMap<>();
+    }
+
+    @Test
+    public void matchesTreeMapUnderRandomOperations() throws InvariantException {
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(2000) - 1000;
+            switch (random.nextInt(4)) {
+                case 0:
+                case 1:
+                    array.put(key, i);
+                    expected.put(key, i);
+                    break;
+                case 2:
+                    assertEquals(expected.remove(key), array.remove(key));
+                    break;
+                default:
+                    assertEquals(expected.get(key), array.get(key));
+            }
+        }
+
+        array.checkInvariants();
+        assertContents();
+    }
+
+    @Test
+    public void putAllMergesWithExistingEntries() throws InvariantException {
+        for (int round = 0; round < 50; round++) {
+            int count = random.nextInt(100);
+            int[] keys = random.ints(-500, 500).distinct().limit(count).sorted().toArray();
+            Integer[] values = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                values[i] = random.nextInt(5) == 0 ? null : round * 1000 + i;
+                if (values[i] != null) expected.put(keys[i], values[i]);
+            }
+
+            array.putAll(keys, values);
+
+            array.checkInvariants();
+            assertContents();
+        }
+    }
+
+    @Test
+    public void ignoresNullValues() {
+        array.put(7, null);
+
+        assertEquals(0, array.size());
+        assertNull(array.get(7));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void putAllRejectsUnsortedKeys() {
+        array.putAll(new int[]{3, 1}, new Integer[]{1, 2});
+    }
+
+    @Test
+    public void removeOfMissingKeyReturnsNull() {
+        array.put(1, 10);
+
+        assertNull(array.remove(2));
+        assertEquals(1, array.size());
+    }
+
+    private void assertContents() {
+        assertEquals(expected.size(), array.size());
+        for (Map.Entry<Integer, Integer> entry : expected.entrySet())
+            assertEquals(entry.getValue(), array.get(entry.getKey()));
+    }
+}